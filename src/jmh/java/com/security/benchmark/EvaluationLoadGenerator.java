@@ -0,0 +1,155 @@
+package com.security.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Closed-loop load test against a running service: N concurrent clients each
+ * send evaluate requests back to back for a fixed time, then throughput and
+ * latency percentiles are printed. Run it once against a server started with
+ * platform threads and once with {@code --spring.profiles.active=virtual}.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.main=com.security.benchmark.EvaluationLoadGenerator
+ * -Djmh.args="http://localhost:8080 my-flag 1000,5000,10000 30"}
+ * <p>
+ * Every request of the run is recorded in a log-linear histogram, so
+ * percentiles cover the whole run rather than its warm-up.
+ */
+public class EvaluationLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String flagKey = args.length > 1 ? args[1] : "load-test";
+        int[] clientCounts = Arrays.stream((args.length > 2 ? args[2] : "1000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 30);
+
+        URI uri = URI.create(baseUrl + "/api/feature-flags/" + flagKey + "/evaluate");
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        System.out.printf("%8s %12s %10s %10s %10s %10s%n", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (int clients : clientCounts) {
+            run(client, uri, clients, duration);
+        }
+    }
+
+    private static void run(HttpClient client, URI uri, int clients, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        LatencyHistogram latencies = new LatencyHistogram();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                String body = "{\"context\":{\"userId\":\"user-" + i + "\",\"email\":\"user-" + i + "@example.com\"}}";
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/json")
+                        .timeout(Duration.ofSeconds(30))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies.record(System.nanoTime() - start);
+                    }
+                });
+            }
+        }
+
+        System.out.printf("%8d %12.0f %10.2f %10.2f %10.2f %10d%n",
+                clients,
+                latencies.count() / (double) duration.toSeconds(),
+                latencies.percentile(0.50) / 1e6,
+                latencies.percentile(0.99) / 1e6,
+                latencies.max() / 1e6,
+                errors.get());
+    }
+
+    /**
+     * HdrHistogram-style recorder: microsecond buckets that are exact below
+     * 128 µs and then split each power of two into 128 sub-buckets, so a
+     * reported percentile is within 1% of the true latency. Memory is fixed
+     * however long the run; requests spend milliseconds on the wire, so one
+     * shared array of atomic counters sees little contention.
+     */
+    static final class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // Latencies above ~67 s (beyond the request timeout) share the last bucket
+        private static final long MAX_MICROS = (1L << 26) - 1;
+
+        private final AtomicLongArray counts = new AtomicLongArray(index(MAX_MICROS) + 1);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+            counts.incrementAndGet(index(micros));
+            total.incrementAndGet();
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        long count() {
+            return total.get();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket holding the p-quantile, in nanoseconds
+        long percentile(double p) {
+            long n = total.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(p * n));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min((highestEquivalent(i) + 1) * 1000 - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int index(long micros) {
+            if (micros < SUB_BUCKETS) {
+                return (int) micros;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int) (micros >>> shift) - SUB_BUCKETS;
+        }
+
+        static long highestEquivalent(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.security.benchmark;
+
+import com.security.entity.FeatureFlag;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.EvaluationResult;
+import com.security.evaluation.SegmentRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the flag evaluation engine on in-memory flags (no database).
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:exec}; the GC profiler is on by
+ * default, so allocation rate is reported as gc.alloc.rate.norm (bytes/op).
+ * Narrow the matrix with e.g. {@code -Djmh.args="-prof gc -p operator=in -p ruleCount=1000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlagEvaluationBenchmark {
+
+    private static final String ATTRIBUTE = "email";
+
+    @Param({"1", "10", "100", "1000"})
+    private int ruleCount;
+
+    @Param({"equals", "contains", "startsWith", "endsWith", "matches", "in"})
+    private String operator;
+
+    /**
+     * FIRST_RULE: the first rule matches. LAST_RULE: every rule is checked and
+     * the last one matches. DEFAULT: no rule matches and the default variation
+     * is served. MISSING_ATTRIBUTE: the context lacks the targeted attribute.
+     * DISABLED: the flag is switched off.
+     */
+    @Param({"FIRST_RULE", "LAST_RULE", "DEFAULT", "MISSING_ATTRIBUTE", "DISABLED"})
+    private String path;
+
+    @Param({"1", "10", "50"})
+    private int contextSize;
+
+    private CompiledFlag flag;
+    private Map<String, String> context;
+    private String simpleValue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FeatureFlag entity = new FeatureFlag();
+        entity.setKey("benchmark-flag");
+        entity.setName("Benchmark flag");
+        entity.setEnabled(!"DISABLED".equals(path));
+
+        for (int i = 0; i < 2; i++) {
+            Variation variation = new Variation();
+            variation.setFeatureFlag(entity);
+            variation.setIndex(i);
+            variation.setName("variation-" + i);
+            variation.setValue(String.valueOf(i));
+            entity.getVariations().add(variation);
+        }
+
+        for (int i = 0; i < ruleCount; i++) {
+            Rule rule = new Rule();
+            rule.setId((long) i);
+            rule.setFeatureFlag(entity);
+            rule.setAttribute(ATTRIBUTE);
+            rule.setOperator(operator);
+            rule.setValue(ruleValue(i));
+            rule.setVariationIndex(1);
+            rule.setOrder(i);
+            entity.getRules().add(rule);
+        }
+
+        flag = CompiledFlag.from(entity, new SegmentRegistry());
+
+        simpleValue = switch (path) {
+            case "FIRST_RULE" -> userEmail(0);
+            case "LAST_RULE" -> userEmail(ruleCount - 1);
+            default -> "nobody@elsewhere.org";
+        };
+
+        context = new HashMap<>();
+        if (!"MISSING_ATTRIBUTE".equals(path)) {
+            context.put(ATTRIBUTE, simpleValue);
+        }
+        for (int i = context.size(); i < contextSize; i++) {
+            context.put("attribute-" + i, "value-" + i);
+        }
+    }
+
+    @Benchmark
+    public EvaluationResult evaluateWithContext() {
+        return flag.evaluate(context);
+    }
+
+    @Benchmark
+    public EvaluationResult evaluateSimple() {
+        return flag.evaluate(ATTRIBUTE, simpleValue);
+    }
+
+    private String ruleValue(int i) {
+        return switch (operator) {
+            case "contains" -> "user-" + i + "@";
+            case "startsWith" -> "user-" + i + "@";
+            case "endsWith" -> "-" + i + "@example.com";
+            case "matches" -> "user-" + i + "@example\\.com";
+            case "in" -> "admin-" + i + "@example.com, " + userEmail(i) + ", ops-" + i + "@example.com";
+            default -> userEmail(i);
+        };
+    }
+
+    private static String userEmail(int i) {
+        return "user-" + i + "@example.com";
+    }
+}
@@ -0,0 +1,28 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.cluster-sync")
+public class ClusterSyncProperties {
+
+    /**
+     * Publish flag changes with NOTIFY and LISTEN for changes made on other nodes.
+     */
+    private boolean enabled = true;
+
+    private String channel = "feature_flag_changes";
+
+    /**
+     * How long the listener blocks waiting for notifications before checking for shutdown.
+     */
+    private Duration pollTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Pause before re-opening the listening connection after it fails.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
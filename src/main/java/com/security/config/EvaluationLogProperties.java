@@ -0,0 +1,29 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.evaluation-log")
+public class EvaluationLogProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Fraction of evaluations (0.0 - 1.0) written to the evaluation log.
+     */
+    private double sampleRate = 0.01;
+
+    /**
+     * Per-flag overrides of {@link #sampleRate}, keyed by flag key.
+     */
+    private Map<String, Double> flagSampleRates = new HashMap<>();
+
+    /**
+     * Capacity of the in-memory buffer; events are dropped when it is full.
+     */
+    private int bufferSize = 8192;
+}
@@ -0,0 +1,16 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.metrics")
+public class FlagMetricsProperties {
+
+    /**
+     * Flags that get their own per-flag meters; evaluations of further flags are
+     * recorded under the flag tag {@code _other}. Each flag adds a latency histogram
+     * per reason, so this bounds the number of series scraped.
+     */
+    private int maxTaggedFlags = 500;
+}
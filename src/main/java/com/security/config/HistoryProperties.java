@@ -0,0 +1,32 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.history")
+public class HistoryProperties {
+
+    /**
+     * Take compacted snapshots of the whole configuration (one node at a time).
+     */
+    private boolean snapshotsEnabled = true;
+
+    /**
+     * Snapshot once this many log entries accumulated since the last one...
+     */
+    private int snapshotEveryEntries = 500;
+
+    /**
+     * ...or once the last snapshot is this old and there is anything new.
+     */
+    private Duration snapshotInterval = Duration.ofHours(1);
+
+    /**
+     * Log entries younger than this are left for the next snapshot, so a
+     * transaction that got its id earlier but commits later is never skipped.
+     */
+    private Duration settleTime = Duration.ofMinutes(1);
+}
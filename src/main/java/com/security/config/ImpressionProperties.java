@@ -0,0 +1,35 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.impressions")
+public class ImpressionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Context attribute identifying the user; evaluations without it are not recorded.
+     */
+    private String userAttribute = "userId";
+
+    /**
+     * Capacity of the in-memory queue; impressions are dropped when it is full.
+     */
+    private int queueSize = 65536;
+
+    private int batchSize = 1000;
+
+    /**
+     * Identical (flag, variation, user) impressions inside this window are written once.
+     */
+    private Duration dedupWindow = Duration.ofHours(1);
+
+    /**
+     * Upper bound on tuples remembered for de-duplication.
+     */
+    private int dedupMaxEntries = 500_000;
+}
@@ -0,0 +1,33 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "security.password")
+public class PasswordProperties {
+
+    /**
+     * BCrypt cost (log2 rounds) for new hashes; existing hashes keep the cost they were created with.
+     */
+    private int bcryptStrength = 10;
+
+    /**
+     * Threads that run BCrypt; defaults to half the available processors.
+     */
+    private int hashThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Hash requests allowed to wait for a thread; logins beyond this fail fast.
+     */
+    private int hashQueueSize = 64;
+
+    /**
+     * How long a loaded user is reused for later logins before it is read again.
+     */
+    private Duration userCacheTtl = Duration.ofMinutes(1);
+
+    private int userCacheMaxEntries = 10_000;
+}
@@ -0,0 +1,19 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.scheduled-changes")
+public class ScheduledChangeProperties {
+
+    /**
+     * Apply due scheduled changes on this node (only one node applies them at a time).
+     */
+    private boolean enabled = true;
+
+    /**
+     * Due changes read per poll; the rest are picked up by the next poll.
+     */
+    private int batchSize = 100;
+}
@@ -1,16 +1,25 @@
 package com.security.config;
 
+import com.security.service.BoundedPasswordEncoder;
 import com.security.service.CustomUserDetailsService;
+import com.security.service.ExpiringUserCache;
+import com.security.service.SignedCookieSecurityContextRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 
 @Configuration
 @EnableWebSecurity
@@ -18,9 +27,31 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     private final CustomUserDetailsService customUserDetailsService;
+    private final PasswordProperties passwordProperties;
+    private final SessionProperties sessionProperties;
 
+    // Prometheus output names every flag key, so scrapers authenticate with HTTP Basic
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health").permitAll()
+                        .anyRequest().authenticated()
+                )
+                .httpBasic(Customizer.withDefaults())
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                );
+
+        return http.build();
+    }
+
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http, SecurityContextRepository securityContextRepository) throws Exception {
+        boolean signedCookie = sessionProperties.getMode() == SessionProperties.Mode.SIGNED_COOKIE;
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
@@ -32,26 +63,46 @@ public class SecurityConfig {
                         .permitAll()
                         .defaultSuccessUrl("/dashboard", true)
                 )
+                .securityContext(context -> context
+                        .securityContextRepository(securityContextRepository)
+                )
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(signedCookie ? SessionCreationPolicy.STATELESS : SessionCreationPolicy.IF_REQUIRED)
+                )
                 .logout(logout -> logout
                         .logoutUrl("/logout")
                         .logoutSuccessUrl("/")
+                        .deleteCookies(sessionProperties.getCookieName())
                         .permitAll()
                 );
 
         return http.build();
     }
 
+    // Signed cookies let any node restore the login without sticky or shared sessions
+    @Bean
+    public SecurityContextRepository securityContextRepository() {
+        if (sessionProperties.getMode() == SessionProperties.Mode.SIGNED_COOKIE) {
+            return new SignedCookieSecurityContextRepository(sessionProperties);
+        }
+        return new HttpSessionSecurityContextRepository();
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(passwordProperties.getBcryptStrength()),
+                passwordProperties.getHashThreads(),
+                passwordProperties.getHashQueueSize());
     }
 
+    // One lookup and one hash per login; repeat logins within the TTL skip the lookup
     @Bean
-    public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
-        AuthenticationManagerBuilder authenticationManagerBuilder = http.getSharedObject(AuthenticationManagerBuilder.class);
-        authenticationManagerBuilder
-                .userDetailsService(customUserDetailsService)
-                .passwordEncoder(passwordEncoder());
-        return authenticationManagerBuilder.build();
+    public AuthenticationManager authenticationManager(PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(passwordEncoder);
+        provider.setUserDetailsService(customUserDetailsService);
+        provider.setUserCache(new ExpiringUserCache(
+                passwordProperties.getUserCacheTtl(), passwordProperties.getUserCacheMaxEntries()));
+        return new ProviderManager(provider);
     }
 }
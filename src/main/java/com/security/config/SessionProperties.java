@@ -0,0 +1,41 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "security.session")
+public class SessionProperties {
+
+    public enum Mode {
+        /**
+         * Security context kept in the servlet HttpSession (needs sticky sessions with several nodes).
+         */
+        HTTP_SESSION,
+        /**
+         * Security context carried in an HMAC-signed cookie that any node can verify.
+         */
+        SIGNED_COOKIE
+    }
+
+    private Mode mode = Mode.HTTP_SESSION;
+
+    private String cookieName = "FLAGS_AUTH";
+
+    /**
+     * Base64 HMAC-SHA256 key of at least 32 bytes, shared by all nodes. When empty a random
+     * key is generated, which only works for a single node and does not survive restarts.
+     */
+    private String secret;
+
+    private Duration tokenTtl = Duration.ofHours(8);
+
+    private boolean secureCookie = false;
+
+    /**
+     * Verified tokens remembered so repeat requests skip the HMAC check.
+     */
+    private int verificationCacheSize = 10_000;
+}
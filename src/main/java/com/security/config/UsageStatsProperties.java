@@ -0,0 +1,28 @@
+package com.security.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "feature-flags.usage-stats")
+public class UsageStatsProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * How far back "last evaluated" looks; flags idle for longer show as never evaluated.
+     */
+    private Duration lookback = Duration.ofDays(30);
+
+    /**
+     * Window averaged into "evals/min".
+     */
+    private int rateWindowMinutes = 5;
+
+    /**
+     * Stats rows older than this are purged.
+     */
+    private Duration retention = Duration.ofDays(90);
+}
@@ -1,18 +1,18 @@
 package com.security.controller;
 
-import com.security.service.CustomUserDetailsService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,8 +26,7 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthenticationManager authenticationManager;
-    private final BCryptPasswordEncoder passwordEncoder;
-    private final CustomUserDetailsService customUserDetailsService;
+    private final SecurityContextRepository securityContextRepository;
 
     @GetMapping("/login")
     public String login() {
@@ -38,17 +37,12 @@ public class AuthController {
     public ResponseEntity<?> handleLogin(
             @RequestParam String username,
             @RequestParam String password,
-            HttpServletRequest request
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
         log.info("Invoke handleLogin method for email : {}", username);
         try {
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-            if (!passwordEncoder.matches(password, userDetails.getPassword())) {
-                log.info("Password is not match for email : {}", username);
-                return ResponseEntity.ok().header("HX-Retarget", "#error-message")
-                        .body("<div class='alert alert-danger'>Invalid email or password</div>");
-            }
-
+            // Loads the user (or takes it from the user cache) and checks the password once
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             username,
@@ -56,14 +50,23 @@ public class AuthController {
                     )
             );
 
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            request.getSession(true).setAttribute(
-                    HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, SecurityContextHolder.getContext()
-            );
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+            // HttpSession or signed cookie, depending on security.session.mode
+            securityContextRepository.saveContext(context, request, response);
 
             return ResponseEntity.ok()
                     .header("HX-Redirect", "/dashboard")
                     .build();
+        } catch (AuthenticationServiceException ex) {
+            log.warn("Login could not be checked for email : {}: {}", username, ex.getMessage());
+            return ResponseEntity.ok().header("HX-Retarget", "#error-message")
+                    .body("<div class='alert alert-danger'>Sign-in is busy right now, please try again</div>");
+        } catch (AuthenticationException ex) {
+            log.info("Invalid credentials for email : {}", username);
+            return ResponseEntity.ok().header("HX-Retarget", "#error-message")
+                    .body("<div class='alert alert-danger'>Invalid email or password</div>");
         } catch (Exception ex) {
             log.info("Error while login", ex);
             return ResponseEntity.ok().header("HX-Retarget", "#error-message")
@@ -2,13 +2,33 @@ package com.security.controller;
 
 import com.security.dto.*;
 import com.security.service.FeatureFlagService;
+import com.security.service.FlagEvaluationMetrics;
+import com.security.service.FlagUsageStats;
+import com.security.service.FlagStreamService;
+import com.security.service.FlagTransferService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Controller
 @RequiredArgsConstructor
@@ -16,92 +36,98 @@ import java.util.List;
 @RequestMapping("/api/feature-flags")
 public class FeatureFlagController {
 
+    private static final int PAGE_SIZE = 50;
+    private static final int FLUSH_EVERY = 10;
+    private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
     private final FeatureFlagService featureFlagService;
+    private final FlagStreamService flagStreamService;
+    private final FlagEvaluationMetrics evaluationMetrics;
+    private final FlagUsageStats flagUsageStats;
+    private final FlagTransferService flagTransferService;
 
     @GetMapping
     @ResponseBody
-    public String getAllFlags() {
-        log.info("Fetching all feature flags");
-        List<FeatureFlagDto> flags = featureFlagService.getAllFlags();
-
-        if (flags.isEmpty()) {
-            return "<div class='alert alert-info'>No feature flags found. Create your first flag!</div>";
+    public ResponseEntity<StreamingResponseBody> getAllFlags(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Boolean enabled,
+            WebRequest webRequest) {
+        // Usage stats change once a minute, so the list ETag also rolls over each minute.
+        // The fingerprint only depends on flag versions, so every node agrees on it.
+        String eTag = "\"flags-" + (System.currentTimeMillis() / 60_000) + "-"
+                + Long.toHexString(featureFlagService.getConfigFingerprint()) + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
         }
 
-        StringBuilder html = new StringBuilder("<div class='flag-list'>");
-
-        for (FeatureFlagDto flag : flags) {
-            html.append("<div class='flag-item'>");
-            html.append("<div class='flag-header'>");
-            html.append("<div>");
-            html.append("<div class='flag-name'>").append(escapeHtml(flag.getName())).append("</div>");
-            html.append("<div class='flag-key'>").append(escapeHtml(flag.getKey())).append("</div>");
-            if (flag.getDescription() != null && !flag.getDescription().isEmpty()) {
-                html.append("<div style='color: #6c757d; margin-top: 5px;'>")
-                        .append(escapeHtml(flag.getDescription())).append("</div>");
-            }
-            html.append("</div>");
-
-            html.append("<div style='display: flex; gap: 10px; align-items: center;'>");
-            html.append("<label class='toggle-switch'>");
-            html.append("<input type='checkbox' ")
-                    .append(flag.isEnabled() ? "checked" : "")
-                    .append(" onchange='toggleFlag(\"").append(flag.getKey()).append("\", this.checked)'>");
-            html.append("<span class='slider'></span>");
-            html.append("</label>");
-            html.append("<button class='btn btn-danger btn-small' onclick='deleteFlag(\"")
-                    .append(flag.getKey()).append("\")'>Delete Flag</button>");
-            html.append("</div>");
-            html.append("</div>");
-
-            // Variations
-            html.append("<div style='margin-top: 10px;'>");
-            html.append("<strong>Variations:</strong> ");
-            for (int i = 0; i < flag.getVariations().size(); i++) {
-                VariationDto v = flag.getVariations().get(i);
-                if (i > 0) html.append(", ");
-                html.append(escapeHtml(v.getName())).append(" (").append(escapeHtml(v.getValue())).append(")");
+        List<FeatureFlagDto> flags = featureFlagService.searchFlags(after, q, enabled, PAGE_SIZE);
+        Map<String, FlagUsageDto> usage = flagUsageStats.getUsage();
+        boolean firstPage = after == null || after.isEmpty();
+
+        String next = null;
+        if (flags.size() == PAGE_SIZE) {
+            next = UriComponentsBuilder.fromPath("/api/feature-flags")
+                    .queryParam("after", flags.get(flags.size() - 1).getKey())
+                    .queryParamIfPresent("q", Optional.ofNullable(q).filter(value -> !value.isBlank()))
+                    .queryParamIfPresent("enabled", Optional.ofNullable(enabled))
+                    .encode()
+                    .toUriString();
+        }
+        boolean filtered = (q != null && !q.isBlank()) || enabled != null;
+        String nextPage = next;
+
+        // Written straight to the response; the buffer is flushed every few flags so the
+        // browser can start parsing before the page is complete
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+            FlagListRenderer html = new FlagListRenderer(writer);
+            // The first page creates the list container; later pages are appended into it
+            // by replacing the "load more" sentinel at its end
+            if (firstPage) {
+                if (flags.isEmpty()) {
+                    html.raw(filtered
+                            ? "<div class='alert alert-info'>No feature flags match the filter.</div>"
+                            : "<div class='alert alert-info'>No feature flags found. Create your first flag!</div>");
+                }
+                html.raw("<div class='flag-list' id='flag-items'>");
             }
-            html.append("</div>");
-
-            // Rules section
-            html.append("<div class='rule-section'>");
-            html.append("<div style='display: flex; justify-content: space-between; align-items: center; margin-bottom: 10px;'>");
-            html.append("<strong>Targeting Rules</strong>");
-            html.append("<button class='btn btn-primary btn-small' onclick='openRuleModal(\"")
-                    .append(flag.getKey()).append("\", ")
-                    .append(toJsonArray(flag.getVariations())).append(")'>Add Rule</button>");
-            html.append("</div>");
-
-            if (flag.getRules() == null || flag.getRules().isEmpty()) {
-                html.append("<div style='color: #6c757d; font-style: italic;'>No targeting rules defined</div>");
-            } else {
-                for (RuleDto rule : flag.getRules()) {
-                    html.append("<div class='rule-item'>");
-                    html.append("<div class='rule-condition'>");
-                    html.append("IF <strong>").append(escapeHtml(rule.getAttribute())).append("</strong> ");
-                    html.append(escapeHtml(rule.getOperator())).append(" ");
-                    html.append("<strong>").append(escapeHtml(rule.getValue())).append("</strong>");
-                    html.append("</div>");
-
-                    VariationDto servedVariation = flag.getVariations().get(rule.getVariationIndex());
-                    html.append("<div class='rule-variation'>");
-                    html.append("SERVE: ").append(escapeHtml(servedVariation.getName()))
-                            .append(" (").append(escapeHtml(servedVariation.getValue())).append(")");
-                    html.append("</div>");
-
-                    html.append("<button class='btn btn-danger btn-small' onclick='deleteRule(\"")
-                            .append(flag.getKey()).append("\", \"")
-                            .append(rule.getId()).append("\")'>Delete</button>");
-                    html.append("</div>");
+            for (int i = 0; i < flags.size(); i++) {
+                FeatureFlagDto flag = flags.get(i);
+                html.flag(flag, usage.get(flag.getKey()), false);
+                if (i % FLUSH_EVERY == FLUSH_EVERY - 1) {
+                    writer.flush();
                 }
             }
-            html.append("</div>");
-            html.append("</div>");
-        }
+            if (nextPage != null) {
+                html.raw("<div class='flag-list-more' hx-get='").text(nextPage)
+                        .raw("' hx-trigger='revealed' hx-swap='outerHTML'>Loading more flags...</div>");
+            }
+            if (firstPage) {
+                html.raw("</div>");
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(HTML_UTF8)
+                .body(body);
+    }
 
-        html.append("</div>");
-        return html.toString();
+    /**
+     * A single flag as rendered in the list, used to refresh one flag in place
+     * GET /api/feature-flags/{flagKey}/fragment
+     */
+    @GetMapping("/{flagKey}/fragment")
+    @ResponseBody
+    public ResponseEntity<String> getFlagFragment(@PathVariable String flagKey) {
+        try {
+            return ResponseEntity.ok(FlagListRenderer.renderToString(
+                    featureFlagService.getFlag(flagKey), flagUsageStats.getUsage().get(flagKey), false));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
     }
 
     @PostMapping
@@ -110,13 +136,15 @@ public class FeatureFlagController {
         log.info("Creating feature flag: {}", dto.getKey());
         try {
             featureFlagService.createFlag(dto);
+            // The list reloads its first page, so the new flag lands at its sorted position
+            // (or not at all when the filter excludes it) and the empty-state message goes
             return ResponseEntity.ok()
                     .header("HX-Trigger", "flagsUpdated")
                     .body("<div class='alert alert-success'>Feature flag created successfully!</div>");
         } catch (Exception e) {
             log.error("Error creating feature flag", e);
             return ResponseEntity.badRequest()
-                    .body("<div class='alert alert-danger'>Error: " + escapeHtml(e.getMessage()) + "</div>");
+                    .body("<div class='alert alert-danger'>Error: " + FlagListRenderer.escape(e.getMessage()) + "</div>");
         }
     }
 
@@ -129,13 +157,16 @@ public class FeatureFlagController {
         try {
             dto.setFlagKey(flagKey);
             featureFlagService.createRule(dto);
-            return ResponseEntity.ok()
-                    .header("HX-Trigger", "flagsUpdated")
-                    .body("<div class='alert alert-success'>Rule created successfully!</div>");
+            return ResponseEntity.ok("<div class='alert alert-success'>Rule created successfully!</div>"
+                    + FlagListRenderer.renderToString(
+                            featureFlagService.getFlag(flagKey), flagUsageStats.getUsage().get(flagKey), true));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("<div class='alert alert-danger'>The flag was changed by someone else. Please try again.</div>");
         } catch (Exception e) {
             log.error("Error creating rule", e);
             return ResponseEntity.badRequest()
-                    .body("<div class='alert alert-danger'>Error: " + escapeHtml(e.getMessage()) + "</div>");
+                    .body("<div class='alert alert-danger'>Error: " + FlagListRenderer.escape(e.getMessage()) + "</div>");
         }
     }
 
@@ -146,14 +177,33 @@ public class FeatureFlagController {
             @RequestBody ToggleFlagDto dto) {
         log.info("Toggling flag: {} to {}", flagKey, dto.isEnabled());
         try {
-            featureFlagService.toggleFlag(flagKey, dto.isEnabled());
+            featureFlagService.toggleFlag(flagKey, dto.isEnabled(), dto.getVersion());
             return ResponseEntity.ok().build();
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
         } catch (Exception e) {
             log.error("Error toggling flag", e);
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    @PatchMapping("/{flagKey}/rollout")
+    @ResponseBody
+    public ResponseEntity<?> updateRollout(
+            @PathVariable String flagKey,
+            @RequestBody RolloutDto dto) {
+        log.info("Updating rollout for flag: {}", flagKey);
+        try {
+            featureFlagService.updateRollout(flagKey, dto);
+            return ResponseEntity.ok().build();
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error updating rollout", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{flagKey}/rules/{ruleId}")
     @ResponseBody
     public ResponseEntity<?> deleteRule(
@@ -163,12 +213,51 @@ public class FeatureFlagController {
         try {
             featureFlagService.deleteRule(flagKey, ruleId);
             return ResponseEntity.ok().build();
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
         } catch (Exception e) {
             log.error("Error deleting rule", e);
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    /**
+     * Require another flag to serve a variation before this flag is evaluated
+     * POST /api/feature-flags/{flagKey}/prerequisites {"flagKey": "...", "variationIndex": 0}
+     */
+    @PostMapping("/{flagKey}/prerequisites")
+    @ResponseBody
+    public ResponseEntity<?> addPrerequisite(
+            @PathVariable String flagKey,
+            @RequestBody PrerequisiteDto dto) {
+        log.info("Adding prerequisite {} to flag {}", dto.getFlagKey(), flagKey);
+        try {
+            return ResponseEntity.ok(featureFlagService.addPrerequisite(flagKey, dto));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error adding prerequisite", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{flagKey}/prerequisites/{prerequisiteKey}")
+    @ResponseBody
+    public ResponseEntity<?> removePrerequisite(
+            @PathVariable String flagKey,
+            @PathVariable String prerequisiteKey) {
+        log.info("Removing prerequisite {} from flag {}", prerequisiteKey, flagKey);
+        try {
+            featureFlagService.removePrerequisite(flagKey, prerequisiteKey);
+            return ResponseEntity.ok().build();
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error removing prerequisite", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @DeleteMapping("/{flagKey}")
     @ResponseBody
     public ResponseEntity<?> deleteFlag(@PathVariable String flagKey) {
@@ -176,19 +265,79 @@ public class FeatureFlagController {
         try {
             featureFlagService.deleteFlag(flagKey);
             return ResponseEntity.ok().build();
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
         } catch (Exception e) {
             log.error("Error deleting flag", e);
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    /**
+     * Stream flag definitions as Server-Sent Events
+     * GET /api/feature-flags/stream
+     * <p>
+     * Sends a "snapshot" event with every flag on connect, then a "flag-change"
+     * event (type, flagKey, flag) for each create, toggle, rule change and delete.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamFlags() {
+        log.info("Opening feature flag stream");
+        return flagStreamService.subscribe();
+    }
+
+    /**
+     * Export every flag with its variations and rules as a JSON array
+     * GET /api/feature-flags/export
+     * <p>
+     * The response is streamed page by page and can be fed back to /import.
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<StreamingResponseBody> exportFlags() {
+        log.info("Exporting feature flags");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"feature-flags.json\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(flagTransferService::exportFlags);
+    }
+
+    /**
+     * Create or update flags from an exported document, in a single transaction
+     * POST /api/feature-flags/import?dryRun=true
+     * <p>
+     * Flags are matched by key; variations and rules of changed flags are replaced.
+     * With dryRun nothing is written and the response lists what would change.
+     */
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> importFlags(InputStream body, @RequestParam(defaultValue = "false") boolean dryRun) {
+        log.info("Importing feature flags (dryRun={})", dryRun);
+        try {
+            return ResponseEntity.ok(flagTransferService.importFlags(body, dryRun));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error importing feature flags", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/{flagKey}")
     @ResponseBody
-    public ResponseEntity<FeatureFlagDto> getFlag(@PathVariable String flagKey) {
+    public ResponseEntity<FeatureFlagDto> getFlag(@PathVariable String flagKey, WebRequest webRequest) {
+        Long version = featureFlagService.getFlagVersion(flagKey);
+        String eTag = version != null ? "\"flag-" + flagKey + "-" + version + "\"" : null;
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         log.info("Fetching flag: {}", flagKey);
         try {
             FeatureFlagDto flag = featureFlagService.getFlag(flagKey);
-            return ResponseEntity.ok(flag);
+            // Tag what was actually read; the snapshot may lag the database briefly
+            return cacheable("\"flag-" + flagKey + "-" + flag.getVersion() + "\"", flag);
         } catch (Exception e) {
             log.error("Error fetching flag", e);
             return ResponseEntity.notFound().build();
@@ -215,21 +364,17 @@ public class FeatureFlagController {
             @PathVariable String flagKey,
             @RequestBody FlagEvaluationRequest request) {
 
-        log.info("Evaluating flag: {} with context: {}", flagKey, request.getContext());
-
         try {
             FlagEvaluationResponse response = featureFlagService.evaluateFlagWithContext(
                     flagKey,
                     request.getContext()
             );
 
-            log.info("Flag {} evaluated: enabled={}, variation={}",
-                    flagKey, response.isEnabled(), response.getVariation());
-
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
             log.error("Error evaluating flag: {}", flagKey, e);
+            evaluationMetrics.recordError();
 
             // Return default disabled state on error
             FlagEvaluationResponse errorResponse = new FlagEvaluationResponse();
@@ -241,6 +386,32 @@ public class FeatureFlagController {
         }
     }
 
+    /**
+     * Evaluate several feature flags against one user context in a single call
+     * POST /api/feature-flags/evaluate
+     * <p>
+     * Request body example:
+     * {
+     * "context": {
+     * "email": "user@example.com",
+     * "country": "US"
+     * },
+     * "flagKeys": ["new-checkout", "dark-mode"]
+     * }
+     * <p>
+     * Omitting "flagKeys" (or sending an empty list) evaluates all flags.
+     */
+    @PostMapping("/evaluate")
+    @ResponseBody
+    public ResponseEntity<Map<String, FlagEvaluationResponse>> evaluateFlags(
+            @RequestBody BatchEvaluationRequest request) {
+
+        return ResponseEntity.ok(featureFlagService.evaluateFlags(
+                request.getFlagKeys(),
+                request.getContext()
+        ));
+    }
+
     /**
      * Simplified evaluation - checks if flag is enabled for a single attribute
      * GET /api/feature-flags/{flagKey}/evaluate?attribute=email&value=user@example.com
@@ -252,8 +423,6 @@ public class FeatureFlagController {
             @RequestParam String attribute,
             @RequestParam String value) {
 
-        log.info("Simple evaluation for flag: {} with {}={}", flagKey, attribute, value);
-
         try {
             FlagEvaluationResponse response = featureFlagService.evaluateFlagSimple(
                     flagKey,
@@ -265,6 +434,7 @@ public class FeatureFlagController {
 
         } catch (Exception e) {
             log.error("Error evaluating flag: {}", flagKey, e);
+            evaluationMetrics.recordError();
 
             FlagEvaluationResponse errorResponse = new FlagEvaluationResponse();
             errorResponse.setEnabled(false);
@@ -275,24 +445,17 @@ public class FeatureFlagController {
         }
     }
 
-    private String escapeHtml(String input) {
-        if (input == null) return "";
-        return input.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#39;");
+    private ResponseEntity<String> conflict(OptimisticLockingFailureException e) {
+        log.warn("Concurrent modification rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The flag was changed by someone else. Reload it and try again.");
     }
 
-    private String toJsonArray(List<VariationDto> variations) {
-        StringBuilder json = new StringBuilder("[");
-        for (int i = 0; i < variations.size(); i++) {
-            if (i > 0) json.append(",");
-            json.append("{\"name\":\"").append(escapeHtml(variations.get(i).getName()))
-                    .append("\",\"value\":\"").append(escapeHtml(variations.get(i).getValue()))
-                    .append("\"}");
-        }
-        json.append("]");
-        return json.toString();
+    // no-cache lets browsers and pollers keep the body but revalidate it with If-None-Match
+    private <T> ResponseEntity<T> cacheable(String eTag, T body) {
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 }
\ No newline at end of file
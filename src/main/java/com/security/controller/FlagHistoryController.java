@@ -0,0 +1,118 @@
+package com.security.controller;
+
+import com.security.dto.FlagChangeLogDto;
+import com.security.service.FlagHistoryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+@RequestMapping("/api/feature-flags")
+public class FlagHistoryController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int FRAGMENT_PAGE_SIZE = 20;
+    private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+    private final FlagHistoryService flagHistoryService;
+
+    /**
+     * Change log of all flags, newest first
+     * GET /api/feature-flags/history?before=1234&limit=50
+     * Pass the smallest id of the previous page as {@code before} to page back.
+     */
+    @GetMapping("/history")
+    @ResponseBody
+    public List<FlagChangeLogDto> getHistory(@RequestParam(required = false) Long before,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        return flagHistoryService.getHistory(null, before, pageSize(limit));
+    }
+
+    @GetMapping("/{flagKey}/history")
+    @ResponseBody
+    public List<FlagChangeLogDto> getFlagHistory(@PathVariable String flagKey,
+                                                 @RequestParam(required = false) Long before,
+                                                 @RequestParam(defaultValue = "50") int limit) {
+        return flagHistoryService.getHistory(flagKey, before, pageSize(limit));
+    }
+
+    /**
+     * A page of the flag's history as HTML for the dashboard; scrolling to the end
+     * loads the next page
+     * GET /api/feature-flags/{flagKey}/history/fragment?before=1234
+     */
+    @GetMapping("/{flagKey}/history/fragment")
+    @ResponseBody
+    public ResponseEntity<String> getFlagHistoryFragment(@PathVariable String flagKey,
+                                                         @RequestParam(required = false) Long before) {
+        List<FlagChangeLogDto> entries = flagHistoryService.getHistory(flagKey, before, FRAGMENT_PAGE_SIZE);
+        String next = null;
+        if (entries.size() == FRAGMENT_PAGE_SIZE) {
+            next = UriComponentsBuilder.fromPath("/api/feature-flags/{flagKey}/history/fragment")
+                    .queryParam("before", entries.get(entries.size() - 1).getId())
+                    .buildAndExpand(flagKey)
+                    .encode()
+                    .toUriString();
+        }
+        StringWriter html = new StringWriter(4096);
+        try {
+            if (entries.isEmpty() && before == null) {
+                html.write("<div style='color: #6c757d; font-style: italic;'>No changes recorded</div>");
+            }
+            new FlagListRenderer(html).history(entries, next);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ResponseEntity.ok().contentType(HTML_UTF8).body(html.toString());
+    }
+
+    /**
+     * The flag as it was at a point in time
+     * GET /api/feature-flags/{flagKey}/at?time=2025-03-01T09:00:00
+     */
+    @GetMapping("/{flagKey}/at")
+    @ResponseBody
+    public ResponseEntity<?> getFlagAt(@PathVariable String flagKey,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        try {
+            return ResponseEntity.ofNullable(flagHistoryService.getFlagAt(flagKey, time));
+        } catch (Exception e) {
+            log.error("Error reading history of flag {}", flagKey, e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Flags added, removed and changed between two points in time
+     * GET /api/feature-flags/history/diff?from=2025-03-01T00:00:00&to=2025-03-02T00:00:00
+     */
+    @GetMapping("/history/diff")
+    @ResponseBody
+    public ResponseEntity<?> diff(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(flagHistoryService.diff(from, to));
+        } catch (Exception e) {
+            log.error("Error comparing flag configurations", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+}
@@ -0,0 +1,278 @@
+package com.security.controller;
+
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagChangeLogDto;
+import com.security.dto.FlagUsageDto;
+import com.security.dto.PrerequisiteDto;
+import com.security.dto.RuleDto;
+import com.security.dto.VariationDto;
+import com.security.evaluation.Rollout;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Writes the dashboard's flag HTML straight to a {@link Writer}. Text is escaped
+ * in one pass into the output, so rendering a page allocates no intermediate
+ * strings per field.
+ * <p>
+ * Values never go into inline JavaScript: the browser decodes entities in an
+ * attribute before running it, so HTML escaping cannot keep a key inside a JS
+ * string. Handlers read them from {@code data-*} attributes instead.
+ */
+class FlagListRenderer {
+
+    private static final DateTimeFormatter USAGE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final Writer out;
+
+    FlagListRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Renders one flag item into a string, for small responses built around it.
+     */
+    static String renderToString(FeatureFlagDto flag, FlagUsageDto usage, boolean outOfBand) {
+        StringWriter html = new StringWriter(2048);
+        try {
+            new FlagListRenderer(html).flag(flag, usage, outOfBand);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+
+    static String escape(String input) {
+        if (input == null) {
+            return "";
+        }
+        StringWriter escaped = new StringWriter(input.length() + 16);
+        try {
+            escape(input, escaped);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Writes {@code input} with {@code & < > " '} replaced by entities, copying
+     * the runs between special characters directly.
+     */
+    static void escape(String input, Writer out) throws IOException {
+        if (input == null) {
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < input.length(); i++) {
+            String entity = switch (input.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&#39;";
+                default -> null;
+            };
+            if (entity != null) {
+                out.write(input, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(input, start, input.length() - start);
+    }
+
+    FlagListRenderer raw(String html) throws IOException {
+        out.write(html);
+        return this;
+    }
+
+    FlagListRenderer text(String value) throws IOException {
+        escape(value, out);
+        return this;
+    }
+
+    /**
+     * Writes one flag item. With {@code outOfBand} the item carries {@code hx-swap-oob}
+     * so it replaces the element with the same id wherever the response is swapped.
+     */
+    void flag(FeatureFlagDto flag, FlagUsageDto usage, boolean outOfBand) throws IOException {
+        raw("<div class='flag-item' id='flag-").text(flag.getKey()).raw("'")
+                .raw(outOfBand ? " hx-swap-oob='true'>" : ">");
+        raw("<div class='flag-header'>");
+        raw("<div>");
+        raw("<div class='flag-name'>").text(flag.getName()).raw("</div>");
+        raw("<div class='flag-key'>").text(flag.getKey()).raw("</div>");
+        raw("<div class='flag-usage'>");
+        usage(usage);
+        raw("</div>");
+        if (flag.getDescription() != null && !flag.getDescription().isEmpty()) {
+            raw("<div style='color: #6c757d; margin-top: 5px;'>").text(flag.getDescription()).raw("</div>");
+        }
+        raw("</div>");
+
+        raw("<div style='display: flex; gap: 10px; align-items: center;'>");
+        raw("<label class='toggle-switch'>");
+        raw("<input type='checkbox' ").raw(flag.isEnabled() ? "checked" : "")
+                .raw(" data-flag-key='").text(flag.getKey())
+                .raw("' data-version='").raw(Long.toString(flag.getVersion()))
+                .raw("' onchange='toggleFlag(this.dataset.flagKey, this.checked, Number(this.dataset.version))'>");
+        raw("<span class='slider'></span>");
+        raw("</label>");
+        raw("<button class='btn btn-secondary btn-small' hx-get='/api/feature-flags/")
+                .text(UriUtils.encodePathSegment(flag.getKey(), StandardCharsets.UTF_8))
+                // Relative target: keys are free-form, so they cannot go into a CSS selector
+                .raw("/history/fragment' hx-target='next .flag-history' hx-swap='innerHTML'>History</button>");
+        raw("<button class='btn btn-danger btn-small' data-flag-key='").text(flag.getKey())
+                .raw("' onclick='deleteFlag(this.dataset.flagKey)'>Delete Flag</button>");
+        raw("</div>");
+        raw("</div>");
+
+        // Variations
+        raw("<div style='margin-top: 10px;'>");
+        raw("<strong>Variations:</strong> ");
+        for (int i = 0; i < flag.getVariations().size(); i++) {
+            VariationDto v = flag.getVariations().get(i);
+            if (i > 0) raw(", ");
+            text(v.getName()).raw(" (").text(v.getValue()).raw(")");
+        }
+        raw("</div>");
+        if (flag.getPrerequisites() != null && !flag.getPrerequisites().isEmpty()) {
+            raw("<div style='margin-top: 5px;'><strong>Prerequisites:</strong> ");
+            for (int i = 0; i < flag.getPrerequisites().size(); i++) {
+                PrerequisiteDto prerequisite = flag.getPrerequisites().get(i);
+                if (i > 0) raw(", ");
+                text(prerequisite.getFlagKey()).raw(" serves variation ")
+                        .raw(Integer.toString(prerequisite.getVariationIndex()));
+            }
+            raw("</div>");
+        }
+        if (flag.getRolloutWeights() != null) {
+            raw("<div style='margin-top: 5px;'><strong>Fallthrough rollout:</strong> ");
+            rollout(flag.getRolloutWeights(), flag.getBucketBy(), flag.getVariations());
+            raw("</div>");
+        }
+
+        // Rules section
+        raw("<div class='rule-section'>");
+        raw("<div style='display: flex; justify-content: space-between; align-items: center; margin-bottom: 10px;'>");
+        raw("<strong>Targeting Rules</strong>");
+        raw("<button class='btn btn-primary btn-small' data-flag-key='").text(flag.getKey())
+                .raw("' data-variations='").text(variationsJson(flag.getVariations()))
+                .raw("' onclick='openRuleModal(this.dataset.flagKey, JSON.parse(this.dataset.variations))'>Add Rule</button>");
+        raw("</div>");
+
+        if (flag.getRules() == null || flag.getRules().isEmpty()) {
+            raw("<div style='color: #6c757d; font-style: italic;'>No targeting rules defined</div>");
+        } else {
+            for (RuleDto rule : flag.getRules()) {
+                raw("<div class='rule-item'>");
+                raw("<div class='rule-condition'>");
+                raw("IF <strong>").text(rule.getAttribute()).raw("</strong> ");
+                text(rule.getOperator()).raw(" ");
+                raw("<strong>").text(rule.getValue()).raw("</strong>");
+                raw("</div>");
+
+                raw("<div class='rule-variation'>");
+                if (rule.getRolloutWeights() != null) {
+                    raw("ROLLOUT: ");
+                    rollout(rule.getRolloutWeights(), rule.getBucketBy(), flag.getVariations());
+                } else {
+                    VariationDto servedVariation = flag.getVariations().get(rule.getVariationIndex());
+                    raw("SERVE: ").text(servedVariation.getName())
+                            .raw(" (").text(servedVariation.getValue()).raw(")");
+                }
+                raw("</div>");
+
+                raw("<button class='btn btn-danger btn-small' data-flag-key='").text(flag.getKey())
+                        .raw("' data-rule-id='").text(rule.getId())
+                        .raw("' onclick='deleteRule(this.dataset.flagKey, this.dataset.ruleId)'>Delete</button>");
+                raw("</div>");
+            }
+        }
+        raw("</div>");
+        raw("<div class='flag-history'></div>");
+        raw("</div>");
+    }
+
+    /**
+     * Writes a page of change log entries, followed by a sentinel that loads the
+     * next page when scrolled into view if {@code nextPage} is set.
+     */
+    void history(List<FlagChangeLogDto> entries, String nextPage) throws IOException {
+        for (FlagChangeLogDto entry : entries) {
+            raw("<div class='history-item'>");
+            raw(USAGE_TIME_FORMAT.format(entry.getChangedAt())).raw(" &middot; ");
+            text(entry.getChangeType()).raw(" by ").text(entry.getChangedBy());
+            if (entry.getFlag() != null) {
+                raw(" &middot; ").raw(entry.getFlag().isEnabled() ? "on" : "off")
+                        .raw(", ").raw(Integer.toString(entry.getFlag().getRules() != null
+                                ? entry.getFlag().getRules().size() : 0)).raw(" rules");
+            }
+            raw("</div>");
+        }
+        if (nextPage != null) {
+            raw("<div class='history-more' hx-get='").text(nextPage)
+                    .raw("' hx-trigger='revealed' hx-swap='outerHTML'>Loading more history...</div>");
+        }
+    }
+
+    private void usage(FlagUsageDto usage) throws IOException {
+        if (usage == null) {
+            raw("Not evaluated recently");
+            return;
+        }
+        // One decimal by hand: String.format is slow per flag and follows the default locale
+        long tenths = Math.round(usage.getEvaluationsPerMinute() * 10);
+        raw("Last evaluated ").raw(USAGE_TIME_FORMAT.format(usage.getLastEvaluatedAt()))
+                .raw(" &middot; ").raw(Long.toString(tenths / 10)).raw(".").raw(Long.toString(tenths % 10))
+                .raw(" evals/min");
+    }
+
+    private void rollout(String weights, String bucketBy, List<VariationDto> variations) throws IOException {
+        String[] parts = weights.split(",");
+        for (int i = 0; i < parts.length && i < variations.size(); i++) {
+            if (i > 0) raw(" / ");
+            text(parts[i].trim()).raw("% ").text(variations.get(i).getName());
+        }
+        raw(" by ").text(bucketBy != null ? bucketBy : Rollout.DEFAULT_BUCKET_BY);
+    }
+
+    // JSON for a data attribute; the caller HTML-escapes it on the way out
+    private static String variationsJson(List<VariationDto> variations) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < variations.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"name\":");
+            jsonString(variations.get(i).getName(), json);
+            json.append(",\"value\":");
+            jsonString(variations.get(i).getValue(), json);
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static void jsonString(String value, StringBuilder json) {
+        json.append('"');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+        }
+        json.append('"');
+    }
+}
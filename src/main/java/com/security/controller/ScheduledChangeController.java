@@ -0,0 +1,59 @@
+package com.security.controller;
+
+import com.security.dto.ScheduleFlagChangeDto;
+import com.security.dto.ScheduledFlagChangeDto;
+import com.security.service.ScheduledChangeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+@RequestMapping("/api/feature-flags/{flagKey}/scheduled-changes")
+public class ScheduledChangeController {
+
+    private final ScheduledChangeService scheduledChangeService;
+
+    @GetMapping
+    @ResponseBody
+    public List<ScheduledFlagChangeDto> getScheduledChanges(@PathVariable String flagKey) {
+        return scheduledChangeService.getScheduledChanges(flagKey);
+    }
+
+    /**
+     * Schedule a change
+     * POST /api/feature-flags/{flagKey}/scheduled-changes
+     * {"action": "ENABLE" | "DISABLE" | "ADD_RULE" | "SET_DEFAULT_VARIATION", "dueAt": "2025-03-01T09:00:00Z",
+     * "variationIndex": 1, "rule": {...}}
+     */
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<?> schedule(@PathVariable String flagKey, @RequestBody ScheduleFlagChangeDto dto) {
+        log.info("Scheduling {} for flag {}", dto.getAction(), flagKey);
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(scheduledChangeService.schedule(flagKey, dto));
+        } catch (Exception e) {
+            log.error("Error scheduling change", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<?> cancel(@PathVariable String flagKey, @PathVariable Long id) {
+        log.info("Cancelling scheduled change {} of flag {}", id, flagKey);
+        try {
+            scheduledChangeService.cancel(flagKey, id);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error cancelling scheduled change", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.security.controller;
+
+import com.security.dto.CreateSegmentDto;
+import com.security.dto.SegmentDto;
+import com.security.dto.SegmentValuesDto;
+import com.security.service.SegmentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.List;
+
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+@RequestMapping("/api/segments")
+public class SegmentController {
+
+    private final SegmentService segmentService;
+
+    @GetMapping
+    @ResponseBody
+    public List<SegmentDto> getSegments() {
+        return segmentService.getSegments();
+    }
+
+    @GetMapping("/{segmentKey}")
+    @ResponseBody
+    public ResponseEntity<SegmentDto> getSegment(@PathVariable String segmentKey) {
+        try {
+            return ResponseEntity.ok(segmentService.getSegment(segmentKey));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PostMapping
+    @ResponseBody
+    public ResponseEntity<?> createSegment(@RequestBody CreateSegmentDto dto) {
+        log.info("Creating segment: {}", dto.getKey());
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(segmentService.createSegment(dto));
+        } catch (Exception e) {
+            log.error("Error creating segment", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Replace all values of a segment with an uploaded list
+     * PUT /api/segments/{segmentKey}/values (text/plain, one value per line)
+     */
+    @PutMapping(path = "/{segmentKey}/values", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> replaceValues(@PathVariable String segmentKey, InputStream body) {
+        log.info("Replacing values of segment: {}", segmentKey);
+        try {
+            return ResponseEntity.ok(segmentService.replaceValues(segmentKey, body));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error replacing segment values", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Add and remove individual values
+     * PATCH /api/segments/{segmentKey}/values {"add": [...], "remove": [...]}
+     */
+    @PatchMapping("/{segmentKey}/values")
+    @ResponseBody
+    public ResponseEntity<?> updateValues(@PathVariable String segmentKey, @RequestBody SegmentValuesDto dto) {
+        log.info("Updating values of segment: {}", segmentKey);
+        try {
+            return ResponseEntity.ok(segmentService.updateValues(segmentKey, dto));
+        } catch (OptimisticLockingFailureException e) {
+            return conflict(e);
+        } catch (Exception e) {
+            log.error("Error updating segment values", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{segmentKey}")
+    @ResponseBody
+    public ResponseEntity<?> deleteSegment(@PathVariable String segmentKey) {
+        log.info("Deleting segment: {}", segmentKey);
+        try {
+            segmentService.deleteSegment(segmentKey);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            log.error("Error deleting segment", e);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private ResponseEntity<String> conflict(OptimisticLockingFailureException e) {
+        log.warn("Concurrent modification rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The segment was changed by someone else. Reload it and try again.");
+    }
+}
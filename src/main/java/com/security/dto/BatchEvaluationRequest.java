@@ -0,0 +1,17 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// BatchEvaluationRequest.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchEvaluationRequest {
+    private Map<String, String> context;
+    private List<String> flagKeys;
+}
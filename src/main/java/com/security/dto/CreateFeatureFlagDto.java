@@ -16,4 +16,6 @@ public class CreateFeatureFlagDto {
     private String description;
     private boolean enabled;
     private List<VariationDto> variations;
+    private String rolloutWeights;
+    private String bucketBy;
 }
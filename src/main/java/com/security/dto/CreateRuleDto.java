@@ -14,4 +14,6 @@ public class CreateRuleDto {
     private String operator;
     private String value;
     private int variationIndex;
+    private String rolloutWeights;
+    private String bucketBy;
 }
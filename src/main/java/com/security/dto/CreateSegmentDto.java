@@ -0,0 +1,18 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// CreateSegmentDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateSegmentDto {
+    private String key;
+    private String name;
+    private String description;
+    private List<String> values;
+}
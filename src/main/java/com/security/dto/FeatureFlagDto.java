@@ -17,6 +17,10 @@ public class FeatureFlagDto {
     private boolean enabled;
     private List<VariationDto> variations;
     private List<RuleDto> rules;
+    private List<PrerequisiteDto> prerequisites;
     private String defaultVariation;
+    private String rolloutWeights;
+    private String bucketBy;
+    private long version;
 }
 
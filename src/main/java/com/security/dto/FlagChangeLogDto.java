@@ -0,0 +1,21 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// FlagChangeLogDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagChangeLogDto {
+    private long id;
+    private String flagKey;
+    private String changeType;
+    private String changedBy;
+    private LocalDateTime changedAt;
+    // The flag after the change; null when it was deleted
+    private FeatureFlagDto flag;
+}
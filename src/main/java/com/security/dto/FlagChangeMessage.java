@@ -0,0 +1,18 @@
+package com.security.dto;
+
+import com.security.event.FlagChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// FlagChangeMessage.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagChangeMessage {
+    private FlagChangeType type;
+    private String flagKey;
+    // The flag's version, null for deletions; clients drop events older than what they hold
+    private Long version;
+    private FeatureFlagDto flag;
+}
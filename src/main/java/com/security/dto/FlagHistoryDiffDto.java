@@ -0,0 +1,27 @@
+package com.security.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// FlagHistoryDiffDto.java: configuration differences between two points in time
+@Data
+@NoArgsConstructor
+public class FlagHistoryDiffDto {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<String> added = new ArrayList<>();
+    private List<String> removed = new ArrayList<>();
+    // Flag key -> names of the fields that differ
+    private Map<String, List<String>> changed = new TreeMap<>();
+
+    public FlagHistoryDiffDto(LocalDateTime from, LocalDateTime to) {
+        this.from = from;
+        this.to = to;
+    }
+}
@@ -0,0 +1,24 @@
+package com.security.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// FlagImportResultDto.java
+@Data
+@NoArgsConstructor
+public class FlagImportResultDto {
+    private boolean dryRun;
+    private List<String> created = new ArrayList<>();
+    // flag key -> names of the fields that differ from the stored flag
+    private Map<String, List<String>> updated = new LinkedHashMap<>();
+    private int unchanged;
+
+    public FlagImportResultDto(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+}
@@ -0,0 +1,17 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// FlagUsageDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagUsageDto {
+    private String flagKey;
+    private LocalDateTime lastEvaluatedAt;
+    private double evaluationsPerMinute;
+}
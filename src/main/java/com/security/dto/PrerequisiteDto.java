@@ -0,0 +1,14 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// PrerequisiteDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrerequisiteDto {
+    private String flagKey;
+    private int variationIndex;
+}
@@ -0,0 +1,14 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// RolloutDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolloutDto {
+    private String rolloutWeights;
+    private String bucketBy;
+}
@@ -0,0 +1,19 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+// ScheduleFlagChangeDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleFlagChangeDto {
+    private String action;
+    // With an offset, e.g. 2025-03-01T09:00:00Z or 2025-03-01T10:00:00+01:00
+    private OffsetDateTime dueAt;
+    private Integer variationIndex;
+    private CreateRuleDto rule;
+}
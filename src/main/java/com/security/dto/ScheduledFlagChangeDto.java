@@ -0,0 +1,23 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// ScheduledFlagChangeDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledFlagChangeDto {
+    private Long id;
+    private String flagKey;
+    private String action;
+    private Instant dueAt;
+    private String status;
+    private Integer variationIndex;
+    private CreateRuleDto rule;
+    private String error;
+    private Instant appliedAt;
+}
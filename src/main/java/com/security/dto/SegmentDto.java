@@ -0,0 +1,17 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// SegmentDto.java
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentDto {
+    private String key;
+    private String name;
+    private String description;
+    private long version;
+    private long size;
+}
@@ -0,0 +1,16 @@
+package com.security.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// SegmentValuesDto.java: incremental membership change
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentValuesDto {
+    private List<String> add;
+    private List<String> remove;
+}
@@ -10,4 +10,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ToggleFlagDto {
     private boolean enabled;
+
+    // Version the client last saw; when set, the toggle fails if the flag has changed since
+    private Long version;
 }
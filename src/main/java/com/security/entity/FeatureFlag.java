@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -33,14 +34,31 @@ public class FeatureFlag {
     private boolean enabled = false;
 
     @OneToMany(mappedBy = "featureFlag", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 256)
     private List<Variation> variations = new ArrayList<>();
 
     @OneToMany(mappedBy = "featureFlag", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 256)
     private List<Rule> rules = new ArrayList<>();
 
+    @OneToMany(mappedBy = "featureFlag", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 256)
+    private List<FlagPrerequisite> prerequisites = new ArrayList<>();
+
     @Column(name = "default_variation")
     private Integer defaultVariationIndex = 0;
 
+    @Column(name = "rollout_weights")
+    private String rolloutWeights;
+
+    @Column(name = "bucket_by")
+    private String bucketBy;
+
+    // Bumped on every change to the flag or its rules; also the version other nodes and ETags compare
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,44 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One committed change to a flag, holding the complete flag as it was after the
+ * change (or no state if it was deleted). Rows are only ever appended, by
+ * {@link com.security.service.FlagHistoryRecorder} in the transaction making the change.
+ */
+@Entity
+@Table(name = "flag_change_log", indexes = {
+        @Index(name = "idx_flag_change_log_flag", columnList = "flag_key, id"),
+        @Index(name = "idx_flag_change_log_time", columnList = "changed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagChangeLogEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flag_key", nullable = false)
+    private String flagKey;
+
+    @Column(name = "change_type", nullable = false, length = 32)
+    private String changeType;
+
+    // FeatureFlagDto JSON; null once the flag is deleted
+    @Column(columnDefinition = "TEXT")
+    private String state;
+
+    @Column(name = "changed_by")
+    private String changedBy;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
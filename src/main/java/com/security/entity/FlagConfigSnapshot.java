@@ -0,0 +1,40 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Every flag as of {@link #lastLogId}: the previous snapshot with all later log
+ * entries up to that id applied. Point-in-time reads start from the newest
+ * snapshot before the requested time and replay only the log entries after it.
+ */
+@Entity
+@Table(name = "flag_config_snapshots", indexes = {
+        @Index(name = "idx_flag_config_snapshots_taken", columnList = "taken_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagConfigSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "last_log_id", nullable = false)
+    private long lastLogId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    @Column(name = "flag_count", nullable = false)
+    private int flagCount;
+
+    // JSON object of flag key -> FeatureFlagDto
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String state;
+}
@@ -0,0 +1,44 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evaluations of one flag outcome (variation, matched rule, reason) during one
+ * minute on one node. Rows are appended by {@link com.security.service.FlagUsageStats}.
+ */
+@Entity
+@Table(name = "flag_evaluation_stats", indexes = {
+        @Index(name = "idx_flag_evaluation_stats_bucket", columnList = "bucket_start, flag_key")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagEvaluationStat {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flag_key", nullable = false)
+    private String flagKey;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "variation_index")
+    private Integer variationIndex;
+
+    @Column(name = "rule_id")
+    private Long ruleId;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(name = "eval_count", nullable = false)
+    private long evalCount;
+}
@@ -0,0 +1,47 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which variation a user was served. Rows are written in JDBC batches by
+ * {@link com.security.service.ImpressionRecorder}; the entity exists so the
+ * table is managed alongside the rest of the schema.
+ */
+@Entity
+@Table(name = "flag_impressions", indexes = {
+        @Index(name = "idx_flag_impressions_flag_time", columnList = "flag_key, evaluated_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagImpression {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flag_key", nullable = false)
+    private String flagKey;
+
+    @Column(name = "user_key", nullable = false)
+    private String userKey;
+
+    @Column(name = "variation_index")
+    private Integer variationIndex;
+
+    private String variation;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(name = "rule_id")
+    private Long ruleId;
+
+    @Column(name = "evaluated_at", nullable = false)
+    private LocalDateTime evaluatedAt;
+}
@@ -0,0 +1,35 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Requires another flag to serve a given variation before {@link #featureFlag}
+ * is evaluated; otherwise the dependent flag serves its default variation.
+ */
+@Entity
+@Table(name = "flag_prerequisites", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_flag_prerequisites_flag_prerequisite",
+                columnNames = {"feature_flag_id", "prerequisite_key"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagPrerequisite {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "feature_flag_id", nullable = false)
+    private FeatureFlag featureFlag;
+
+    @Column(name = "prerequisite_key", nullable = false)
+    private String prerequisiteKey;
+
+    @Column(name = "variation_index", nullable = false)
+    private int variationIndex;
+}
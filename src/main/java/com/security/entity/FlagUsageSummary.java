@@ -0,0 +1,30 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The last minute in which a flag was evaluated on any node. Upserted by
+ * {@link com.security.service.FlagUsageStats} with each flush, so "last
+ * evaluated" never needs a scan of {@code flag_evaluation_stats}.
+ */
+@Entity
+@Table(name = "flag_usage_summary", indexes = {
+        @Index(name = "idx_flag_usage_summary_last_bucket", columnList = "last_bucket")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlagUsageSummary {
+
+    @Id
+    @Column(name = "flag_key")
+    private String flagKey;
+
+    @Column(name = "last_bucket", nullable = false)
+    private LocalDateTime lastBucket;
+}
@@ -37,6 +37,16 @@ public class Rule {
     @Column(name = "rule_order")
     private int order;
 
+    @Column(name = "rollout_weights")
+    private String rolloutWeights;
+
+    @Column(name = "bucket_by")
+    private String bucketBy;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
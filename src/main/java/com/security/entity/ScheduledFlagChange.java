@@ -0,0 +1,80 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+/**
+ * A flag change to apply at {@link #dueAt}. Pending rows are picked up by
+ * {@link com.security.service.ScheduledChangeRunner} through the
+ * {@code (status, due_at)} index, so finished changes cost nothing to keep.
+ */
+@Entity
+@Table(name = "scheduled_flag_changes", indexes = {
+        @Index(name = "idx_scheduled_flag_changes_due", columnList = "status, due_at"),
+        @Index(name = "idx_scheduled_flag_changes_flag", columnList = "flag_key")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledFlagChange {
+
+    public enum Action {
+        ENABLE,
+        DISABLE,
+        ADD_RULE,
+        SET_DEFAULT_VARIATION
+    }
+
+    public enum Status {
+        PENDING,
+        APPLIED,
+        FAILED,
+        CANCELLED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flag_key", nullable = false)
+    private String flagKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Action action;
+
+    // ADD_RULE: the rule as CreateRuleDto JSON
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    // SET_DEFAULT_VARIATION: the new default
+    @Column(name = "variation_index")
+    private Integer variationIndex;
+
+    // An instant (timestamptz) so every node compares it the same way, whatever its zone
+    @Column(name = "due_at", nullable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE")
+    private Instant dueAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "applied_at", columnDefinition = "TIMESTAMP WITH TIME ZONE")
+    private Instant appliedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
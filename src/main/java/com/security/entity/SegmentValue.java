@@ -0,0 +1,31 @@
+package com.security.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One member of a {@link Segment}. Written with plain JDBC batches, since
+ * segments can hold tens of thousands of values.
+ */
+@Entity
+@Table(name = "segment_values", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_segment_values_segment_value", columnNames = {"segment_id", "value"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentValue {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "segment_id", nullable = false)
+    private Segment segment;
+
+    @Column(nullable = false)
+    private String value;
+}
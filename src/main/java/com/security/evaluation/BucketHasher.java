@@ -0,0 +1,48 @@
+package com.security.evaluation;
+
+/**
+ * Stable, allocation-free hashing used for percentage rollouts. FNV-1a is run
+ * over the UTF-16 chars of the salt and then the value (so the salt state can
+ * be computed once per flag), followed by the MurmurHash3 64-bit finalizer to
+ * spread the bits. The result does not depend on the JVM, node or restart.
+ */
+public final class BucketHasher {
+
+    public static final int BUCKETS = 100_000;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private BucketHasher() {
+    }
+
+    public static long seed(String salt) {
+        return update(FNV_OFFSET_BASIS, salt);
+    }
+
+    public static int bucket(long seed, String value) {
+        long h = fmix64(update(seed, value));
+        return (int) ((h >>> 1) % BUCKETS);
+    }
+
+    public static long hash(String value) {
+        return fmix64(update(FNV_OFFSET_BASIS, value));
+    }
+
+    private static long update(long h, String value) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h ^= value.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
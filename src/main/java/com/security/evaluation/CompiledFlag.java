@@ -0,0 +1,200 @@
+package com.security.evaluation;
+
+import com.security.entity.FeatureFlag;
+import com.security.entity.FlagPrerequisite;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, evaluation-ready view of a {@link FeatureFlag}: rules are sorted by
+ * {@code order} and variations are addressable by their {@code index}. Flags with
+ * many rules also get a {@link RuleIndex}, so large targeting lists are not
+ * scanned rule by rule. Prerequisites are only listed here; they are evaluated
+ * by {@link FlagSnapshot}, which knows the other flags.
+ */
+@Getter
+public class CompiledFlag {
+
+    private final String key;
+    private final Long id;
+    private final long version;
+    private final boolean enabled;
+    private final CompiledVariation[] variations;
+    private final CompiledRule[] rules;
+    private final CompiledVariation defaultVariation;
+    private final EvaluationResult disabledResult;
+    private final EvaluationResult defaultResult;
+    private final EvaluationResult prerequisiteFailedResult;
+    private final Rollout rollout;
+    private final Prerequisite[] prerequisites;
+    @Getter(AccessLevel.NONE)
+    private final RuleIndex ruleIndex;
+
+    private CompiledFlag(String key, Long id, long version, boolean enabled, CompiledVariation[] variations,
+                         CompiledRule[] rules, CompiledVariation defaultVariation,
+                         String rolloutWeights, String bucketBy, Prerequisite[] prerequisites) {
+        this.key = key;
+        this.id = id;
+        this.version = version;
+        this.enabled = enabled;
+        this.variations = variations;
+        this.rules = rules;
+        this.ruleIndex = rules.length >= RuleIndex.MIN_RULES ? RuleIndex.build(rules) : null;
+        this.defaultVariation = defaultVariation;
+        this.disabledResult = new EvaluationResult(key, false, defaultVariation, "flag_disabled", null);
+        this.defaultResult = new EvaluationResult(key, true, defaultVariation, "default_variation", null);
+        this.prerequisiteFailedResult = new EvaluationResult(key, false, defaultVariation, "prerequisite_failed", null);
+        this.prerequisites = prerequisites;
+        this.rollout = Rollout.compile(key, rolloutWeights, bucketBy, variations,
+                v -> new EvaluationResult(key, true, v, "rollout", null));
+    }
+
+    /**
+     * Compiles {@code flag}; {@code insegment} rules resolve their segment in {@code segments}.
+     */
+    public static CompiledFlag from(FeatureFlag flag, SegmentRegistry segments) {
+        List<Variation> sourceVariations = flag.getVariations();
+        int size = 0;
+        for (Variation v : sourceVariations) {
+            size = Math.max(size, v.getIndex() + 1);
+        }
+        CompiledVariation[] variations = new CompiledVariation[size];
+        for (Variation v : sourceVariations) {
+            variations[v.getIndex()] = new CompiledVariation(v.getIndex(), v.getName(), v.getValue());
+        }
+
+        CompiledVariation defaultVariation = null;
+        if (!sourceVariations.isEmpty()) {
+            int defaultIndex = flag.getDefaultVariationIndex() != null ? flag.getDefaultVariationIndex() : 0;
+            defaultVariation = defaultIndex >= 0 && defaultIndex < size ? variations[defaultIndex] : null;
+            if (defaultVariation == null) {
+                Variation first = sourceVariations.get(0);
+                defaultVariation = variations[first.getIndex()];
+            }
+        }
+
+        List<Rule> sortedRules = flag.getRules().stream()
+                .sorted(Comparator.comparingInt(Rule::getOrder))
+                .toList();
+        CompiledRule[] rules = new CompiledRule[sortedRules.size()];
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = sortedRules.get(i);
+            int index = rule.getVariationIndex();
+            CompiledVariation variation = index >= 0 && index < size ? variations[index] : null;
+            rules[i] = new CompiledRule(flag.getKey(), rule, i, variation, variations, segments);
+        }
+
+        Prerequisite[] prerequisites = flag.getPrerequisites().stream()
+                .sorted(Comparator.comparing(FlagPrerequisite::getPrerequisiteKey))
+                .map(p -> new Prerequisite(p.getPrerequisiteKey(), p.getVariationIndex()))
+                .toArray(Prerequisite[]::new);
+
+        return new CompiledFlag(flag.getKey(), flag.getId(), flag.getVersion(), flag.isEnabled(), variations, rules,
+                defaultVariation, flag.getRolloutWeights(), flag.getBucketBy(), prerequisites);
+    }
+
+    public boolean hasPrerequisites() {
+        return prerequisites.length > 0;
+    }
+
+    /**
+     * Whether every prerequisite was served its required variation, given the
+     * results of the prerequisite flags. A prerequisite without a result (an
+     * unknown flag) is not met.
+     */
+    boolean prerequisitesMet(Map<String, EvaluationResult> results) {
+        for (Prerequisite prerequisite : prerequisites) {
+            EvaluationResult result = results.get(prerequisite.flagKey());
+            if (result == null || !result.isEnabled() || result.getVariation() == null
+                    || result.getVariation().getIndex() != prerequisite.variationIndex()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public EvaluationResult evaluate(Map<String, String> context) {
+        if (!enabled) {
+            return disabledResult;
+        }
+
+        if (ruleIndex != null) {
+            for (int position : ruleIndex.matches(context)) {
+                EvaluationResult result = rules[position].select(context);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return fallthrough(rollout != null ? rollout.select(context) : null);
+        }
+
+        for (CompiledRule rule : rules) {
+            String contextValue = context.get(rule.getAttribute());
+            if (contextValue != null && rule.matches(contextValue)) {
+                EvaluationResult result = rule.select(context);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
+        return fallthrough(rollout != null ? rollout.select(context) : null);
+    }
+
+    public EvaluationResult evaluate(String attribute, String value) {
+        if (!enabled) {
+            return disabledResult;
+        }
+
+        if (ruleIndex != null) {
+            for (int position : ruleIndex.matches(attribute, value)) {
+                EvaluationResult result = rules[position].select(attribute, value);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return fallthrough(rollout != null ? rollout.select(attribute, value) : null);
+        }
+
+        for (CompiledRule rule : rules) {
+            if (rule.getAttribute().equals(attribute) && rule.matches(value)) {
+                EvaluationResult result = rule.select(attribute, value);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+
+        return fallthrough(rollout != null ? rollout.select(attribute, value) : null);
+    }
+
+    public boolean isEnabledFor(String attribute, String value) {
+        if (!enabled) {
+            return false;
+        }
+        if (ruleIndex != null) {
+            return ruleIndex.anyMatch(attribute, value);
+        }
+
+        for (CompiledRule rule : rules) {
+            if (rule.getAttribute().equals(attribute) && rule.matches(value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private EvaluationResult fallthrough(EvaluationResult rolloutResult) {
+        return rolloutResult != null ? rolloutResult : defaultResult;
+    }
+
+    public record Prerequisite(String flagKey, int variationIndex) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.security.evaluation;
+
+import com.security.entity.Rule;
+import lombok.Getter;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+@Getter
+public class CompiledRule {
+
+    private final Long id;
+    private final String attribute;
+    private final RuleOperator operator;
+    private final String value;
+    private final Pattern pattern;
+    private final Set<String> values;
+    private final SegmentRegistry.Membership segment;
+    private final int variationIndex;
+    private final int order;
+    private final int position;
+    private final CompiledVariation variation;
+    private final EvaluationResult matchResult;
+    private final Rollout rollout;
+
+    CompiledRule(String flagKey, Rule rule, int position, CompiledVariation variation, CompiledVariation[] variations,
+                 SegmentRegistry segments) {
+        this.id = rule.getId();
+        this.attribute = rule.getAttribute();
+        this.value = rule.getValue();
+        RuleOperator parsed = RuleOperator.fromString(rule.getOperator());
+        this.pattern = parsed == RuleOperator.MATCHES ? compilePattern(value) : null;
+        this.values = parsed == RuleOperator.IN ? splitValues(value) : Set.of();
+        this.segment = parsed == RuleOperator.IN_SEGMENT ? segments.membership(value) : null;
+        // Rules that cannot be compiled (unknown operator, broken regex) never match
+        this.operator = parsed == RuleOperator.MATCHES && pattern == null ? null : parsed;
+        this.variationIndex = rule.getVariationIndex();
+        this.order = rule.getOrder();
+        this.position = position;
+        this.variation = variation;
+        this.matchResult = variation != null
+                ? new EvaluationResult(flagKey, true, variation, "rule_match", this)
+                : null;
+        this.rollout = Rollout.compile(flagKey, rule.getRolloutWeights(), rule.getBucketBy(), variations,
+                v -> new EvaluationResult(flagKey, true, v, "rule_match", this));
+    }
+
+    public EvaluationResult select(Map<String, String> context) {
+        return rollout != null ? rollout.select(context) : matchResult;
+    }
+
+    public EvaluationResult select(String attribute, String value) {
+        return rollout != null ? rollout.select(attribute, value) : matchResult;
+    }
+
+    public boolean matches(String userValue) {
+        if (operator == null) {
+            return false;
+        }
+        switch (operator) {
+            case EQUALS:
+                return userValue.equals(value);
+            case CONTAINS:
+                return userValue.contains(value);
+            case STARTS_WITH:
+                return userValue.startsWith(value);
+            case ENDS_WITH:
+                return userValue.endsWith(value);
+            case MATCHES:
+                return pattern.matcher(userValue).matches();
+            case IN:
+                return values.contains(userValue);
+            case IN_SEGMENT:
+                return segment.contains(userValue);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks that an operator/value pair can be compiled, so bad rules are
+     * rejected when they are created instead of silently never matching.
+     */
+    public static void validate(String operator, String value) {
+        RuleOperator parsed = RuleOperator.fromString(operator);
+        if (parsed == null) {
+            throw new RuntimeException("Unsupported operator: " + operator);
+        }
+        if (value == null) {
+            throw new RuntimeException("Rule value is required");
+        }
+        if (parsed == RuleOperator.MATCHES) {
+            try {
+                Pattern.compile(value);
+            } catch (PatternSyntaxException e) {
+                throw new RuntimeException("Invalid regular expression: " + e.getDescription());
+            }
+        }
+    }
+
+    private static Pattern compilePattern(String value) {
+        try {
+            return Pattern.compile(value);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> splitValues(String value) {
+        Set<String> values = new HashSet<>();
+        for (String val : value.split(",")) {
+            values.add(val.trim());
+        }
+        return values;
+    }
+}
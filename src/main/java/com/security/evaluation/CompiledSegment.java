@@ -0,0 +1,64 @@
+package com.security.evaluation;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Immutable membership set of a segment: the {@link BucketHasher#hash 64-bit hashes}
+ * of its values, sorted and de-duplicated, so membership is one hash and a binary
+ * search over a primitive array (8 bytes per member, no per-value objects).
+ * Two different values sharing a 64-bit hash is negligible at segment sizes.
+ */
+public final class CompiledSegment {
+
+    private static final long[] NO_MEMBERS = new long[0];
+
+    @Getter
+    private final String key;
+    @Getter
+    private final Long id;
+    @Getter
+    private final long version;
+    private final long[] hashes;
+
+    private CompiledSegment(String key, Long id, long version, long[] hashes) {
+        this.key = key;
+        this.id = id;
+        this.version = version;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Stand-in for a segment that does not exist (yet); contains nothing.
+     */
+    public static CompiledSegment missing(String key) {
+        return new CompiledSegment(key, null, -1L, NO_MEMBERS);
+    }
+
+    /**
+     * Builds a segment from value hashes in any order; {@code hashes} is sorted in place.
+     */
+    public static CompiledSegment of(String key, Long id, long version, long[] hashes, int count) {
+        Arrays.sort(hashes, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || hashes[i] != hashes[unique - 1]) {
+                hashes[unique++] = hashes[i];
+            }
+        }
+        return new CompiledSegment(key, id, version, unique == hashes.length ? hashes : Arrays.copyOf(hashes, unique));
+    }
+
+    public boolean contains(String value) {
+        return Arrays.binarySearch(hashes, BucketHasher.hash(value)) >= 0;
+    }
+
+    public int size() {
+        return hashes.length;
+    }
+
+    public boolean exists() {
+        return version >= 0;
+    }
+}
@@ -0,0 +1,10 @@
+package com.security.evaluation;
+
+import lombok.Value;
+
+@Value
+public class CompiledVariation {
+    int index;
+    String name;
+    String value;
+}
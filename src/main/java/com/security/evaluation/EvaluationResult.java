@@ -0,0 +1,18 @@
+package com.security.evaluation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Outcome of evaluating a compiled flag. Instances are created once when the
+ * flag is compiled and shared by every evaluation that ends in the same place.
+ */
+@Getter
+@AllArgsConstructor
+public class EvaluationResult {
+    private final String flagKey;
+    private final boolean enabled;
+    private final CompiledVariation variation;
+    private final String reason;
+    private final CompiledRule matchedRule;
+}
@@ -0,0 +1,202 @@
+package com.security.evaluation;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Point-in-time, read-only set of compiled flags. A new snapshot is built for
+ * every change and swapped in as a whole, so readers never see a partial update.
+ * <p>
+ * The prerequisite graph is sorted topologically when the snapshot is built:
+ * each flag with prerequisites gets the list of all flags it transitively
+ * depends on, ordered so that every flag comes after its own prerequisites.
+ * Flags on a cycle get no list and always fail their prerequisites.
+ */
+public class FlagSnapshot {
+
+    public static final FlagSnapshot EMPTY = new FlagSnapshot(Map.of(), 0L);
+
+    private final Map<String, CompiledFlag> flags;
+    private final Map<String, CompiledFlag[]> prerequisiteOrder;
+
+    @Getter
+    private final long version;
+
+    /**
+     * Order-independent hash of every (key, version) pair. Unlike {@link #version},
+     * which is local to this node, it is equal on all nodes holding the same flags.
+     */
+    @Getter
+    private final long fingerprint;
+
+    public FlagSnapshot(Map<String, CompiledFlag> flags, long version) {
+        this.flags = Collections.unmodifiableMap(flags);
+        this.version = version;
+        long sum = 0L;
+        for (CompiledFlag flag : flags.values()) {
+            sum += BucketHasher.hash(flag.getKey()) ^ (flag.getVersion() * 0x9E3779B97F4A7C15L);
+        }
+        this.fingerprint = sum;
+        this.prerequisiteOrder = orderPrerequisites(flags);
+    }
+
+    public CompiledFlag get(String key) {
+        return flags.get(key);
+    }
+
+    public Map<String, CompiledFlag> getFlags() {
+        return flags;
+    }
+
+    /**
+     * Evaluates one flag, including its prerequisites.
+     */
+    public EvaluationResult evaluate(CompiledFlag flag, Map<String, String> context) {
+        if (!flag.hasPrerequisites()) {
+            return flag.evaluate(context);
+        }
+        return evaluate(flag, context, new HashMap<>());
+    }
+
+    /**
+     * Evaluates {@code flag} and its prerequisites, reusing and adding to the results
+     * in {@code memo}. Passing the same memo for all flags of one request evaluates
+     * a shared prerequisite only once.
+     */
+    public EvaluationResult evaluate(CompiledFlag flag, Map<String, String> context, Map<String, EvaluationResult> memo) {
+        EvaluationResult result = memo.get(flag.getKey());
+        if (result != null) {
+            return result;
+        }
+        if (!flag.hasPrerequisites()) {
+            result = flag.evaluate(context);
+        } else {
+            CompiledFlag[] order = prerequisiteOrder.get(flag.getKey());
+            if (order == null) {
+                // On a prerequisite cycle
+                result = flag.isEnabled() ? flag.getPrerequisiteFailedResult() : flag.getDisabledResult();
+            } else {
+                for (CompiledFlag prerequisite : order) {
+                    if (!memo.containsKey(prerequisite.getKey())) {
+                        memo.put(prerequisite.getKey(), evaluateAfterPrerequisites(prerequisite, context, memo));
+                    }
+                }
+                result = evaluateAfterPrerequisites(flag, context, memo);
+            }
+        }
+        memo.put(flag.getKey(), result);
+        return result;
+    }
+
+    /**
+     * Single-attribute form of {@link #evaluate(CompiledFlag, Map)}.
+     */
+    public EvaluationResult evaluate(CompiledFlag flag, String attribute, String value) {
+        if (!flag.hasPrerequisites()) {
+            return flag.evaluate(attribute, value);
+        }
+        return evaluate(flag, Map.of(attribute, value), new HashMap<>());
+    }
+
+    public boolean isEnabledFor(CompiledFlag flag, String attribute, String value) {
+        if (flag.hasPrerequisites()
+                && evaluate(flag, attribute, value) == flag.getPrerequisiteFailedResult()) {
+            return false;
+        }
+        return flag.isEnabledFor(attribute, value);
+    }
+
+    // Every prerequisite of the flag is already in the memo at this point
+    private static EvaluationResult evaluateAfterPrerequisites(CompiledFlag flag, Map<String, String> context,
+                                                               Map<String, EvaluationResult> memo) {
+        if (!flag.isEnabled()) {
+            return flag.getDisabledResult();
+        }
+        return flag.prerequisitesMet(memo) ? flag.evaluate(context) : flag.getPrerequisiteFailedResult();
+    }
+
+    /**
+     * Kahn's algorithm over the prerequisite edges, then per dependent flag its
+     * transitive prerequisites sorted by topological rank.
+     */
+    private static Map<String, CompiledFlag[]> orderPrerequisites(Map<String, CompiledFlag> flags) {
+        Map<String, List<String>> dependents = new HashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        for (CompiledFlag flag : flags.values()) {
+            if (!flag.hasPrerequisites()) {
+                continue;
+            }
+            int present = 0;
+            for (CompiledFlag.Prerequisite prerequisite : flag.getPrerequisites()) {
+                if (flags.containsKey(prerequisite.flagKey())) {
+                    dependents.computeIfAbsent(prerequisite.flagKey(), k -> new ArrayList<>()).add(flag.getKey());
+                    present++;
+                }
+            }
+            pending.put(flag.getKey(), present);
+        }
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Integer> rank = new HashMap<>();
+        Deque<String> ready = new ArrayDeque<>();
+        for (String key : flags.keySet()) {
+            if (pending.getOrDefault(key, 0) == 0) {
+                ready.add(key);
+            }
+        }
+        while (!ready.isEmpty()) {
+            String key = ready.poll();
+            rank.put(key, rank.size());
+            for (String dependent : dependents.getOrDefault(key, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        Map<String, CompiledFlag[]> order = new HashMap<>();
+        for (String key : pending.keySet()) {
+            if (!rank.containsKey(key)) {
+                // Never became ready: on a cycle or behind one
+                continue;
+            }
+            Set<String> closure = new HashSet<>();
+            Deque<String> stack = new ArrayDeque<>();
+            stack.push(key);
+            while (!stack.isEmpty()) {
+                for (CompiledFlag.Prerequisite prerequisite : flags.get(stack.pop()).getPrerequisites()) {
+                    if (flags.containsKey(prerequisite.flagKey()) && closure.add(prerequisite.flagKey())) {
+                        stack.push(prerequisite.flagKey());
+                    }
+                }
+            }
+            order.put(key, closure.stream()
+                    .sorted(Comparator.comparingInt(rank::get))
+                    .map(flags::get)
+                    .toArray(CompiledFlag[]::new));
+        }
+        return order;
+    }
+
+    public FlagSnapshot with(String key, CompiledFlag flag) {
+        Map<String, CompiledFlag> copy = new HashMap<>(flags);
+        if (flag == null) {
+            copy.remove(key);
+        } else {
+            copy.put(key, flag);
+        }
+        return new FlagSnapshot(copy, version + 1);
+    }
+}
@@ -0,0 +1,113 @@
+package com.security.evaluation;
+
+import java.util.Map;
+
+/**
+ * Percentage split across variations. Weights are given as percentages per
+ * variation index (e.g. "95,5") and stored as thousandths of a percent, so
+ * rollouts as small as 0.001% are possible. Results for every variation are
+ * built up front, so picking one allocates nothing.
+ */
+public class Rollout {
+
+    public static final String DEFAULT_BUCKET_BY = "userId";
+
+    private static final int SCALE = 1000;
+
+    private final String bucketBy;
+    private final long seed;
+    private final int[] upperBounds;
+    private final EvaluationResult[] results;
+
+    private Rollout(String bucketBy, long seed, int[] upperBounds, EvaluationResult[] results) {
+        this.bucketBy = bucketBy;
+        this.seed = seed;
+        this.upperBounds = upperBounds;
+        this.results = results;
+    }
+
+    /**
+     * Builds a rollout whose results are produced by {@code resultFactory}, or
+     * returns {@code null} when no weights are configured.
+     */
+    static Rollout compile(String flagKey, String weights, String bucketBy, CompiledVariation[] variations,
+                           ResultFactory resultFactory) {
+        if (weights == null || weights.isBlank()) {
+            return null;
+        }
+        int[] parsed = parseWeights(weights, variations.length);
+        int[] upperBounds = new int[parsed.length];
+        EvaluationResult[] results = new EvaluationResult[parsed.length];
+        int cumulative = 0;
+        for (int i = 0; i < parsed.length; i++) {
+            cumulative += parsed[i];
+            upperBounds[i] = cumulative;
+            results[i] = variations[i] != null ? resultFactory.create(variations[i]) : null;
+        }
+        String attribute = bucketBy == null || bucketBy.isBlank() ? DEFAULT_BUCKET_BY : bucketBy;
+        return new Rollout(attribute, BucketHasher.seed(flagKey + "."), upperBounds, results);
+    }
+
+    /**
+     * Checks a weight list against the number of variations on the flag.
+     */
+    public static void validate(String weights, int variationCount) {
+        if (weights != null && !weights.isBlank()) {
+            parseWeights(weights, variationCount);
+        }
+    }
+
+    public String getBucketBy() {
+        return bucketBy;
+    }
+
+    public EvaluationResult select(Map<String, String> context) {
+        return selectBucket(context.get(bucketBy));
+    }
+
+    public EvaluationResult select(String attribute, String value) {
+        return selectBucket(bucketBy.equals(attribute) ? value : null);
+    }
+
+    // Contexts without the bucketing attribute all land in bucket 0
+    private EvaluationResult selectBucket(String bucketValue) {
+        int bucket = bucketValue != null ? BucketHasher.bucket(seed, bucketValue) : 0;
+        for (int i = 0; i < upperBounds.length; i++) {
+            if (bucket < upperBounds[i]) {
+                return results[i];
+            }
+        }
+        return results[results.length - 1];
+    }
+
+    private static int[] parseWeights(String weights, int variationCount) {
+        String[] parts = weights.split(",");
+        if (parts.length > variationCount) {
+            throw new RuntimeException("Rollout has " + parts.length + " weights but the flag has "
+                    + variationCount + " variations");
+        }
+        int[] parsed = new int[parts.length];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            double percent;
+            try {
+                percent = Double.parseDouble(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid rollout weight: " + parts[i].trim());
+            }
+            if (percent < 0 || percent > 100) {
+                throw new RuntimeException("Rollout weights must be between 0 and 100: " + parts[i].trim());
+            }
+            parsed[i] = (int) Math.round(percent * SCALE);
+            total += parsed[i];
+        }
+        if (total != 100 * SCALE) {
+            throw new RuntimeException("Rollout weights must add up to 100, got " + (total / (double) SCALE));
+        }
+        return parsed;
+    }
+
+    interface ResultFactory {
+        EvaluationResult create(CompiledVariation variation);
+    }
+}
@@ -0,0 +1,263 @@
+package com.security.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds the rules of one flag that match a context without testing every rule.
+ * <p>
+ * Rules are grouped by attribute. {@code equals} and {@code in} rules are looked
+ * up by value in a hash map, {@code startswith} rules by walking a prefix trie
+ * along the context value, and only the remaining operators are tested one by
+ * one. Matches come back as rule positions in ascending order, so callers keep
+ * the first-by-{@code order} semantics of a linear scan.
+ */
+final class RuleIndex {
+
+    /**
+     * Below this many rules a linear scan is as fast as the lookups, so flags
+     * this small are not indexed.
+     */
+    static final int MIN_RULES = 16;
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, AttributeRules> byAttribute;
+
+    private RuleIndex(Map<String, AttributeRules> byAttribute) {
+        this.byAttribute = byAttribute;
+    }
+
+    static RuleIndex build(CompiledRule[] rules) {
+        Map<String, AttributeRules.Builder> builders = new HashMap<>();
+        for (CompiledRule rule : rules) {
+            if (rule.getOperator() == null) {
+                // Never matches, so it does not need to be found
+                continue;
+            }
+            builders.computeIfAbsent(rule.getAttribute(), a -> new AttributeRules.Builder()).add(rule);
+        }
+        Map<String, AttributeRules> byAttribute = new HashMap<>(builders.size() * 2);
+        builders.forEach((attribute, builder) -> byAttribute.put(attribute, builder.build()));
+        return new RuleIndex(byAttribute);
+    }
+
+    /**
+     * Positions of all rules matching the context, ascending.
+     */
+    int[] matches(Map<String, String> context) {
+        Matches matches = new Matches();
+        for (Map.Entry<String, AttributeRules> entry : byAttribute.entrySet()) {
+            String value = context.get(entry.getKey());
+            if (value != null) {
+                entry.getValue().collect(value, matches);
+            }
+        }
+        return matches.sorted();
+    }
+
+    /**
+     * Positions of all rules on {@code attribute} matching {@code value}, ascending.
+     */
+    int[] matches(String attribute, String value) {
+        AttributeRules rules = byAttribute.get(attribute);
+        if (rules == null) {
+            return NONE;
+        }
+        Matches matches = new Matches();
+        rules.collect(value, matches);
+        return matches.sorted();
+    }
+
+    boolean anyMatch(String attribute, String value) {
+        AttributeRules rules = byAttribute.get(attribute);
+        return rules != null && rules.anyMatch(value);
+    }
+
+    private static final class AttributeRules {
+
+        private final Map<String, int[]> exact;
+        private final PrefixNode prefixes;
+        private final CompiledRule[] scanned;
+
+        private AttributeRules(Map<String, int[]> exact, PrefixNode prefixes, CompiledRule[] scanned) {
+            this.exact = exact;
+            this.prefixes = prefixes;
+            this.scanned = scanned;
+        }
+
+        void collect(String value, Matches matches) {
+            int[] positions = exact.get(value);
+            if (positions != null) {
+                matches.addAll(positions);
+            }
+            if (prefixes != null) {
+                prefixes.collect(value, matches);
+            }
+            for (CompiledRule rule : scanned) {
+                if (rule.matches(value)) {
+                    matches.add(rule.getPosition());
+                }
+            }
+        }
+
+        boolean anyMatch(String value) {
+            if (exact.containsKey(value)) {
+                return true;
+            }
+            if (prefixes != null && prefixes.any(value)) {
+                return true;
+            }
+            for (CompiledRule rule : scanned) {
+                if (rule.matches(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static final class Builder {
+
+            private final Map<String, List<Integer>> exact = new HashMap<>();
+            private final PrefixNode.Builder prefixes = new PrefixNode.Builder();
+            private final List<CompiledRule> scanned = new ArrayList<>();
+            private boolean hasPrefixes;
+
+            void add(CompiledRule rule) {
+                switch (rule.getOperator()) {
+                    case EQUALS -> exact.computeIfAbsent(rule.getValue(), v -> new ArrayList<>()).add(rule.getPosition());
+                    case IN -> {
+                        for (String value : rule.getValues()) {
+                            exact.computeIfAbsent(value, v -> new ArrayList<>()).add(rule.getPosition());
+                        }
+                    }
+                    case STARTS_WITH -> {
+                        prefixes.add(rule.getValue(), rule.getPosition());
+                        hasPrefixes = true;
+                    }
+                    default -> scanned.add(rule);
+                }
+            }
+
+            AttributeRules build() {
+                Map<String, int[]> frozen = new HashMap<>(exact.size() * 2);
+                // Rules are added in position order, so each list is already ascending
+                exact.forEach((value, positions) ->
+                        frozen.put(value, positions.stream().mapToInt(Integer::intValue).toArray()));
+                return new AttributeRules(frozen, hasPrefixes ? prefixes.build() : null,
+                        scanned.toArray(new CompiledRule[0]));
+            }
+        }
+    }
+
+    /**
+     * Trie node keyed by character; children are kept in sorted arrays and
+     * found by binary search.
+     */
+    private static final class PrefixNode {
+
+        private final int[] positions;
+        private final char[] labels;
+        private final PrefixNode[] children;
+
+        private PrefixNode(int[] positions, char[] labels, PrefixNode[] children) {
+            this.positions = positions;
+            this.labels = labels;
+            this.children = children;
+        }
+
+        /**
+         * Adds the rules of every prefix of {@code value} found along the path.
+         */
+        void collect(String value, Matches matches) {
+            PrefixNode node = this;
+            int depth = 0;
+            while (node != null) {
+                matches.addAll(node.positions);
+                if (depth == value.length()) {
+                    return;
+                }
+                int child = Arrays.binarySearch(node.labels, value.charAt(depth++));
+                node = child >= 0 ? node.children[child] : null;
+            }
+        }
+
+        boolean any(String value) {
+            PrefixNode node = this;
+            int depth = 0;
+            while (node != null) {
+                if (node.positions.length > 0) {
+                    return true;
+                }
+                if (depth == value.length()) {
+                    return false;
+                }
+                int child = Arrays.binarySearch(node.labels, value.charAt(depth++));
+                node = child >= 0 ? node.children[child] : null;
+            }
+            return false;
+        }
+
+        private static final class Builder {
+
+            private final List<Integer> positions = new ArrayList<>();
+            private final TreeMap<Character, Builder> children = new TreeMap<>();
+
+            void add(String prefix, int position) {
+                Builder node = this;
+                for (int i = 0; i < prefix.length(); i++) {
+                    node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder());
+                }
+                node.positions.add(position);
+            }
+
+            PrefixNode build() {
+                char[] labels = new char[children.size()];
+                PrefixNode[] nodes = new PrefixNode[children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                    labels[i] = entry.getKey();
+                    nodes[i++] = entry.getValue().build();
+                }
+                return new PrefixNode(positions.stream().mapToInt(Integer::intValue).toArray(), labels, nodes);
+            }
+        }
+    }
+
+    /**
+     * Small growable list of positions; most lookups find zero or one rule.
+     */
+    private static final class Matches {
+
+        private int[] positions = NONE;
+        private int size;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(4, size * 2));
+            }
+            positions[size++] = position;
+        }
+
+        void addAll(int[] more) {
+            for (int position : more) {
+                add(position);
+            }
+        }
+
+        int[] sorted() {
+            if (size == 0) {
+                return NONE;
+            }
+            int[] result = size == positions.length ? positions : Arrays.copyOf(positions, size);
+            if (size > 1) {
+                Arrays.sort(result);
+            }
+            return result;
+        }
+    }
+}
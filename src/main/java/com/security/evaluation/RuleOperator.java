@@ -0,0 +1,43 @@
+package com.security.evaluation;
+
+import java.util.Locale;
+
+public enum RuleOperator {
+    EQUALS("equals"),
+    CONTAINS("contains"),
+    STARTS_WITH("startswith"),
+    ENDS_WITH("endswith"),
+    MATCHES("matches"),
+    IN("in"),
+    /**
+     * The rule value is a segment key; matches members of that segment.
+     */
+    IN_SEGMENT("insegment");
+
+    private final String name;
+
+    RuleOperator(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Resolves the operator stored on a rule, ignoring case. Returns {@code null}
+     * for unknown operators so callers can decide whether that is an error.
+     */
+    public static RuleOperator fromString(String operator) {
+        if (operator == null) {
+            return null;
+        }
+        String normalized = operator.toLowerCase(Locale.ROOT);
+        for (RuleOperator candidate : values()) {
+            if (candidate.name.equals(normalized)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.security.evaluation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current membership of every segment, shared by all compiled flags.
+ * <p>
+ * A rule referencing a segment holds the segment's {@link Membership}, not the
+ * members themselves. Replacing a segment swaps the set inside that holder, so
+ * every flag using it sees the change at once and no flag has to be recompiled.
+ */
+public class SegmentRegistry {
+
+    private final Map<String, Membership> segments = new ConcurrentHashMap<>();
+
+    /**
+     * The holder for {@code key}, created empty if the segment is not loaded.
+     */
+    public Membership membership(String key) {
+        return segments.computeIfAbsent(key, k -> new Membership(CompiledSegment.missing(k)));
+    }
+
+    public CompiledSegment get(String key) {
+        Membership membership = segments.get(key);
+        return membership != null ? membership.segment : null;
+    }
+
+    public void put(CompiledSegment segment) {
+        membership(segment.getKey()).segment = segment;
+    }
+
+    /**
+     * Empties a deleted segment; the holder stays, as rules may still point at it.
+     */
+    public void remove(String key) {
+        Membership membership = segments.get(key);
+        if (membership != null) {
+            membership.segment = CompiledSegment.missing(key);
+        }
+    }
+
+    /**
+     * The segments that currently exist, by key.
+     */
+    public Map<String, CompiledSegment> existing() {
+        Map<String, CompiledSegment> existing = new HashMap<>();
+        segments.forEach((key, membership) -> {
+            if (membership.segment.exists()) {
+                existing.put(key, membership.segment);
+            }
+        });
+        return existing;
+    }
+
+    public static final class Membership {
+
+        private volatile CompiledSegment segment;
+
+        private Membership(CompiledSegment segment) {
+            this.segment = segment;
+        }
+
+        public boolean contains(String value) {
+            return segment.contains(value);
+        }
+    }
+}
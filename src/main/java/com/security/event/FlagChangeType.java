@@ -0,0 +1,20 @@
+package com.security.event;
+
+public enum FlagChangeType {
+    CREATED,
+    TOGGLED,
+    ROLLOUT_CHANGED,
+    DEFAULT_VARIATION_CHANGED,
+    RULE_ADDED,
+    RULE_DELETED,
+    PREREQUISITES_CHANGED,
+    DELETED,
+    /**
+     * Changed on another node; only the new state is known.
+     */
+    UPDATED,
+    /**
+     * Bulk import of many flags at once; the event carries no flag key.
+     */
+    IMPORTED
+}
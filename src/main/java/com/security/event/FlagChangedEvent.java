@@ -0,0 +1,14 @@
+package com.security.event;
+
+import lombok.Value;
+
+/**
+ * Published by {@link com.security.service.FeatureFlagService} for every flag mutation.
+ * Listeners that need committed state should use {@code @TransactionalEventListener}.
+ * Bulk changes ({@link FlagChangeType#IMPORTED}) have a {@code null} flag key.
+ */
+@Value
+public class FlagChangedEvent {
+    String flagKey;
+    FlagChangeType type;
+}
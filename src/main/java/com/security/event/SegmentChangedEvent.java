@@ -0,0 +1,12 @@
+package com.security.event;
+
+import lombok.Value;
+
+/**
+ * Published by {@link com.security.service.SegmentService} whenever a segment or
+ * its values change. Flags using the segment are not changed themselves.
+ */
+@Value
+public class SegmentChangedEvent {
+    String segmentKey;
+}
@@ -1,15 +1,64 @@
 package com.security.repository;
 
 import com.security.entity.FeatureFlag;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface FeatureFlagRepository extends JpaRepository<FeatureFlag, Long> {
+    @EntityGraph(attributePaths = "variations")
     Optional<FeatureFlag> findByKey(String key);
 
     boolean existsByKey(String key);
-}
 
+    // Variations are fetch-joined; rules are loaded in batches via @BatchSize,
+    // so N flags cost 1 + ceil(N / 256) statements instead of 1 + 2N.
+    @EntityGraph(attributePaths = "variations")
+    @Query("select f from FeatureFlag f order by f.id")
+    List<FeatureFlag> findAllWithVariations();
+
+    // Increments the version on commit even if only the rules change, so concurrent
+    // rule edits of one flag conflict instead of both computing the same rule order
+    // (no entity graph: the lock mode would be applied to the unversioned variations too)
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select f from FeatureFlag f where f.key = :key")
+    Optional<FeatureFlag> findByKeyForUpdate(@Param("key") String key);
+
+    @EntityGraph(attributePaths = "variations")
+    List<FeatureFlag> findByKeyIn(Collection<String> keys);
+
+    // Keyset page for streaming; collections come from @BatchSize, since fetch-joining
+    // them would make Hibernate apply the limit in memory
+    @Query("select f from FeatureFlag f where f.id > :afterId order by f.id")
+    List<FeatureFlag> findPageAfter(@Param("afterId") long afterId, Pageable page);
+
+    // Dashboard listing: keyset-paginated by key, optionally filtered by a lower-case
+    // "prefix%" pattern on key or name and by enabled state
+    @Query("select f from FeatureFlag f where f.key > :afterKey "
+            + "and (:pattern is null or lower(f.key) like :pattern escape '\\' or lower(f.name) like :pattern escape '\\') "
+            + "and (:enabled is null or f.enabled = :enabled) "
+            + "order by f.key")
+    List<FeatureFlag> searchPageAfter(@Param("afterKey") String afterKey, @Param("pattern") String pattern,
+                                      @Param("enabled") Boolean enabled, Pageable page);
+
+    @Query("select f.key as flagKey, f.id as id, f.version as version from FeatureFlag f")
+    List<FlagVersion> findAllVersions();
+
+    interface FlagVersion {
+        String getFlagKey();
+
+        Long getId();
+
+        long getVersion();
+    }
+}
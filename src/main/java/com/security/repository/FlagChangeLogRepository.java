@@ -0,0 +1,36 @@
+package com.security.repository;
+
+import com.security.entity.FlagChangeLogEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FlagChangeLogRepository extends JpaRepository<FlagChangeLogEntry, Long> {
+
+    // Newest first, keyset-paginated by id
+    @Query("select e from FlagChangeLogEntry e where e.id < :beforeId order by e.id desc")
+    List<FlagChangeLogEntry> findPageBefore(@Param("beforeId") long beforeId, Pageable page);
+
+    @Query("select e from FlagChangeLogEntry e where e.flagKey = :flagKey and e.id < :beforeId order by e.id desc")
+    List<FlagChangeLogEntry> findFlagPageBefore(@Param("flagKey") String flagKey, @Param("beforeId") long beforeId,
+                                                Pageable page);
+
+    // The delta to replay on top of a snapshot
+    @Query("select e from FlagChangeLogEntry e where e.id > :afterId and e.changedAt <= :at order by e.id")
+    List<FlagChangeLogEntry> findAfter(@Param("afterId") long afterId, @Param("at") LocalDateTime at);
+
+    Optional<FlagChangeLogEntry> findFirstByFlagKeyAndIdGreaterThanAndChangedAtLessThanEqualOrderByIdDesc(
+            String flagKey, long afterId, LocalDateTime at);
+
+    @Query("select max(e.id) from FlagChangeLogEntry e where e.changedAt < :before")
+    Long findMaxIdBefore(@Param("before") LocalDateTime before);
+
+    long countByIdGreaterThan(long id);
+}
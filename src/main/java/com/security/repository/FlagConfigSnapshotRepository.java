@@ -0,0 +1,16 @@
+package com.security.repository;
+
+import com.security.entity.FlagConfigSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface FlagConfigSnapshotRepository extends JpaRepository<FlagConfigSnapshot, Long> {
+
+    Optional<FlagConfigSnapshot> findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(LocalDateTime at);
+
+    Optional<FlagConfigSnapshot> findFirstByOrderByIdDesc();
+}
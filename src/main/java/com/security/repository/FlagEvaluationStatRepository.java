@@ -0,0 +1,31 @@
+package com.security.repository;
+
+import com.security.entity.FlagEvaluationStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FlagEvaluationStatRepository extends JpaRepository<FlagEvaluationStat, Long> {
+
+    // Only the rate window is scanned; the bucket_start index bounds it to a few minutes of rows
+    @Query("select s.flagKey as flagKey, sum(s.evalCount) as evalCount "
+            + "from FlagEvaluationStat s where s.bucketStart >= :since group by s.flagKey")
+    List<RecentCount> countSince(LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FlagEvaluationStat s where s.bucketStart < :cutoff")
+    int deleteOlderThan(LocalDateTime cutoff);
+
+    interface RecentCount {
+        String getFlagKey();
+
+        Long getEvalCount();
+    }
+}
@@ -0,0 +1,25 @@
+package com.security.repository;
+
+import com.security.entity.FlagPrerequisite;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FlagPrerequisiteRepository extends JpaRepository<FlagPrerequisite, Long> {
+
+    @Query("select p.featureFlag.key as flagKey, p.prerequisiteKey as prerequisiteKey from FlagPrerequisite p")
+    List<Edge> findAllEdges();
+
+    @Query("select p.featureFlag.key from FlagPrerequisite p where p.prerequisiteKey = :prerequisiteKey")
+    List<String> findDependentFlagKeys(@Param("prerequisiteKey") String prerequisiteKey);
+
+    interface Edge {
+        String getFlagKey();
+
+        String getPrerequisiteKey();
+    }
+}
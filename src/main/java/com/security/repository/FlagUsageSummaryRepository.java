@@ -0,0 +1,22 @@
+package com.security.repository;
+
+import com.security.entity.FlagUsageSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FlagUsageSummaryRepository extends JpaRepository<FlagUsageSummary, String> {
+
+    List<FlagUsageSummary> findByLastBucketGreaterThanEqual(LocalDateTime horizon);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FlagUsageSummary s where s.lastBucket < :cutoff")
+    int deleteOlderThan(LocalDateTime cutoff);
+}
@@ -2,8 +2,15 @@ package com.security.repository;
 
 import com.security.entity.Rule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface RuleRepository extends JpaRepository<Rule, Long> {
+
+    @Query("select distinct r.featureFlag.key from Rule r where lower(r.operator) = 'insegment' and r.value = :segmentKey")
+    List<String> findFlagKeysUsingSegment(@Param("segmentKey") String segmentKey);
 }
@@ -0,0 +1,22 @@
+package com.security.repository;
+
+import com.security.entity.ScheduledFlagChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ScheduledFlagChangeRepository extends JpaRepository<ScheduledFlagChange, Long> {
+
+    // Range scan on idx_scheduled_flag_changes_due (status, due_at)
+    @Query("select c.id from ScheduledFlagChange c where c.status = :status and c.dueAt <= :now order by c.dueAt, c.id")
+    List<Long> findDueIds(@Param("status") ScheduledFlagChange.Status status, @Param("now") Instant now,
+                          Pageable page);
+
+    List<ScheduledFlagChange> findByFlagKeyOrderByDueAtDesc(String flagKey);
+}
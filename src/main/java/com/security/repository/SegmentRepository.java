@@ -0,0 +1,38 @@
+package com.security.repository;
+
+import com.security.entity.Segment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SegmentRepository extends JpaRepository<Segment, Long> {
+
+    Optional<Segment> findByKey(String key);
+
+    boolean existsByKey(String key);
+
+    List<Segment> findAllByOrderByKey();
+
+    // Value changes do not touch the segment row, so the version is forced up on commit
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select s from Segment s where s.key = :key")
+    Optional<Segment> findByKeyForUpdate(@Param("key") String key);
+
+    @Query("select s.key as segmentKey, s.id as id, s.version as version from Segment s")
+    List<SegmentVersion> findAllVersions();
+
+    interface SegmentVersion {
+        String getSegmentKey();
+
+        Long getId();
+
+        long getVersion();
+    }
+}
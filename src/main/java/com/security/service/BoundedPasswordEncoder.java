@@ -0,0 +1,75 @@
+package com.security.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a (deliberately slow) password encoder on a small, fixed pool with a
+ * bounded queue. A burst of logins then uses at most that many cores; requests
+ * that do not fit in the queue are rejected with an
+ * {@link AuthenticationServiceException} instead of piling up.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueSize) {
+        this.delegate = delegate;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                task -> {
+                    Thread thread = new Thread(task, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // Called by Spring on shutdown (inferred destroy method)
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException e) {
+            log.warn("Password hashing queue is full, rejecting request");
+            throw new AuthenticationServiceException("Too many sign-in attempts at the moment, please try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Interrupted while checking password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new AuthenticationServiceException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.security.service;
+
+import com.security.config.EvaluationLogProperties;
+import com.security.evaluation.EvaluationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sampled, asynchronous log of flag evaluations. The request thread only rolls
+ * the sampling dice and offers an event to a bounded buffer; formatting and
+ * writing happen on a background thread. Events that do not fit are dropped
+ * and counted rather than slowing down evaluation.
+ * <p>
+ * Output goes to the {@code feature-flags.evaluations} logger as key=value pairs.
+ */
+@Component
+public class EvaluationEventLogger implements EvaluationListener {
+
+    private static final Logger EVENTS = LoggerFactory.getLogger("feature-flags.evaluations");
+
+    private final EvaluationLogProperties properties;
+    private final BlockingQueue<EvaluationEvent> buffer;
+    private final Counter dropped;
+
+    private Thread writer;
+
+    public EvaluationEventLogger(EvaluationLogProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferSize());
+        this.dropped = Counter.builder("feature_flags.evaluation_log.dropped")
+                .description("Sampled evaluation events dropped because the buffer was full")
+                .register(registry);
+        Gauge.builder("feature_flags.evaluation_log.buffered", buffer, BlockingQueue::size)
+                .description("Evaluation events waiting to be written")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        writer = new Thread(this::drain, "evaluation-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public void onEvaluation(EvaluationResult result, Map<String, String> context) {
+        if (writer == null) {
+            return;
+        }
+        double rate = properties.getFlagSampleRates().getOrDefault(result.getFlagKey(), properties.getSampleRate());
+        if (rate <= 0 || (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate)) {
+            return;
+        }
+        if (!buffer.offer(new EvaluationEvent(System.currentTimeMillis(), result, context))) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                write(buffer.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                EVENTS.warn("Failed to write evaluation event", e);
+            }
+        }
+    }
+
+    private void write(EvaluationEvent event) {
+        EvaluationResult result = event.result();
+        EVENTS.info("ts={} flag={} enabled={} reason={} variation={} rule={} context={}",
+                Instant.ofEpochMilli(event.timestamp()),
+                result.getFlagKey(),
+                result.isEnabled(),
+                result.getReason(),
+                result.getVariation() != null ? result.getVariation().getName() : null,
+                result.getMatchedRule() != null ? result.getMatchedRule().getId() : null,
+                event.context());
+    }
+
+    private record EvaluationEvent(long timestamp, EvaluationResult result, Map<String, String> context) {
+    }
+}
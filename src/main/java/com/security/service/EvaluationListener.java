@@ -0,0 +1,14 @@
+package com.security.service;
+
+import com.security.evaluation.EvaluationResult;
+
+import java.util.Map;
+
+/**
+ * Receives every flag evaluation made by {@link FeatureFlagService}. Called on the
+ * request thread, so implementations must hand work off rather than block or format.
+ */
+public interface EvaluationListener {
+
+    void onEvaluation(EvaluationResult result, Map<String, String> context);
+}
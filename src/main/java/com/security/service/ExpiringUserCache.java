@@ -0,0 +1,74 @@
+package com.security.service;
+
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of loaded users for {@code DaoAuthenticationProvider}, so a
+ * repeated login skips the database. The provider re-reads the user whenever
+ * a cached password does not match, so a changed password is never rejected
+ * because of a stale entry.
+ * <p>
+ * Entries are copies: the authentication manager erases credentials on the
+ * {@link UserDetails} it authenticated, which must not reach the cache.
+ */
+public class ExpiringUserCache implements UserCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoTime;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ExpiringUserCache(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, System::nanoTime);
+    }
+
+    ExpiringUserCache(Duration ttl, int maxEntries, LongSupplier nanoTime) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        Entry entry = entries.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoTime.getAsLong() - entry.loadedAt() > ttlNanos) {
+            entries.remove(username, entry);
+            return null;
+        }
+        return copy(entry.user());
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        if (entries.size() >= maxEntries) {
+            long now = nanoTime.getAsLong();
+            entries.values().removeIf(entry -> now - entry.loadedAt() > ttlNanos);
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        entries.put(user.getUsername(), new Entry(copy(user), nanoTime.getAsLong()));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        entries.remove(username);
+    }
+
+    private static UserDetails copy(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+
+    private record Entry(UserDetails user, long loadedAt) {
+    }
+}
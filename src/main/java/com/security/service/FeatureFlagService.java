@@ -2,19 +2,39 @@ package com.security.service;
 
 import com.security.dto.*;
 import com.security.entity.FeatureFlag;
+import com.security.entity.FlagPrerequisite;
 import com.security.entity.Rule;
 import com.security.entity.Variation;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.CompiledRule;
+import com.security.evaluation.EvaluationResult;
+import com.security.evaluation.FlagSnapshot;
+import com.security.evaluation.Rollout;
+import com.security.evaluation.RuleOperator;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
 import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagPrerequisiteRepository;
 import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
 import com.security.repository.VariationRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,11 +45,37 @@ public class FeatureFlagService {
     private final FeatureFlagRepository featureFlagRepository;
     private final VariationRepository variationRepository;
     private final RuleRepository ruleRepository;
+    private final SegmentRepository segmentRepository;
+    private final FlagPrerequisiteRepository prerequisiteRepository;
+    private final FlagSnapshotService flagSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlagEvaluationMetrics evaluationMetrics;
+    private final List<EvaluationListener> evaluationListeners;
 
     @Transactional(readOnly = true)
     public List<FeatureFlagDto> getAllFlags() {
         log.info("Fetching all feature flags");
-        return featureFlagRepository.findAll().stream()
+        return featureFlagRepository.findAllWithVariations().stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * One page of the dashboard listing, ordered by key. Pass the last key of the
+     * previous page as {@code afterKey} (empty for the first page). {@code query}
+     * matches key or name prefixes, case-insensitively.
+     */
+    @Transactional(readOnly = true)
+    public List<FeatureFlagDto> searchFlags(String afterKey, String query, Boolean enabled, int limit) {
+        String pattern = null;
+        if (query != null && !query.isBlank()) {
+            pattern = query.trim().toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\")
+                    .replace("%", "\\%")
+                    .replace("_", "\\_") + "%";
+        }
+        return featureFlagRepository.searchPageAfter(afterKey != null ? afterKey : "", pattern, enabled,
+                        PageRequest.ofSize(limit)).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
@@ -42,6 +88,23 @@ public class FeatureFlagService {
         return convertToDto(flag);
     }
 
+    /**
+     * Fingerprint of the flag configuration served by this node, used as the ETag
+     * for flag lists. Nodes holding the same flag versions report the same value.
+     */
+    public long getConfigFingerprint() {
+        return flagSnapshotService.current().getFingerprint();
+    }
+
+    /**
+     * Stored version of a flag as currently served, or {@code null} if the flag
+     * does not exist.
+     */
+    public Long getFlagVersion(String key) {
+        CompiledFlag flag = flagSnapshotService.current().get(key);
+        return flag != null ? flag.getVersion() : null;
+    }
+
     @Transactional
     public FeatureFlagDto createFlag(CreateFeatureFlagDto dto) {
         log.info("Creating feature flag: {}", dto.getKey());
@@ -55,6 +118,9 @@ public class FeatureFlagService {
         flag.setName(dto.getName());
         flag.setDescription(dto.getDescription());
         flag.setEnabled(dto.isEnabled());
+        Rollout.validate(dto.getRolloutWeights(), dto.getVariations() != null ? dto.getVariations().size() : 0);
+        flag.setRolloutWeights(blankToNull(dto.getRolloutWeights()));
+        flag.setBucketBy(blankToNull(dto.getBucketBy()));
         flag.setVariations(new ArrayList<>());
         flag.setRules(new ArrayList<>());
 
@@ -74,6 +140,7 @@ public class FeatureFlagService {
             featureFlagRepository.save(flag);
         }
 
+        eventPublisher.publishEvent(new FlagChangedEvent(flag.getKey(), FlagChangeType.CREATED));
         log.info("Feature flag created successfully: {}", dto.getKey());
         return convertToDto(flag);
     }
@@ -82,12 +149,10 @@ public class FeatureFlagService {
     public RuleDto createRule(CreateRuleDto dto) {
         log.info("Creating rule for flag: {}", dto.getFlagKey());
 
-        FeatureFlag flag = featureFlagRepository.findByKey(dto.getFlagKey())
+        FeatureFlag flag = featureFlagRepository.findByKeyForUpdate(dto.getFlagKey())
                 .orElseThrow(() -> new RuntimeException("Feature flag not found: " + dto.getFlagKey()));
 
-        if (dto.getVariationIndex() < 0 || dto.getVariationIndex() >= flag.getVariations().size()) {
-            throw new RuntimeException("Invalid variation index: " + dto.getVariationIndex());
-        }
+        validateRule(flag, dto);
 
         Rule rule = new Rule();
         rule.setFeatureFlag(flag);
@@ -95,33 +160,102 @@ public class FeatureFlagService {
         rule.setOperator(dto.getOperator());
         rule.setValue(dto.getValue());
         rule.setVariationIndex(dto.getVariationIndex());
-        rule.setOrder(flag.getRules().size());
+        rule.setRolloutWeights(blankToNull(dto.getRolloutWeights()));
+        rule.setBucketBy(blankToNull(dto.getBucketBy()));
+        // Not locked: two concurrent adds can pick the same order, but both force-increment
+        // the flag version, so the second commit fails its version check and rolls back
+        rule.setOrder(nextRuleOrder(flag.getRules()));
 
         rule = ruleRepository.save(rule);
         flag.getRules().add(rule);
+        eventPublisher.publishEvent(new FlagChangedEvent(flag.getKey(), FlagChangeType.RULE_ADDED));
 
         log.info("Rule created successfully for flag: {}", dto.getFlagKey());
         return convertRuleToDto(rule);
     }
 
+    /**
+     * One past the highest existing order. Deleting a rule leaves a gap, so the
+     * rule count would hand out an order that is still taken.
+     */
+    static int nextRuleOrder(Collection<Rule> rules) {
+        int max = -1;
+        for (Rule rule : rules) {
+            max = Math.max(max, rule.getOrder());
+        }
+        return max + 1;
+    }
+
+    /**
+     * Checks a new rule against its flag without saving it.
+     */
+    void validateRule(FeatureFlag flag, CreateRuleDto dto) {
+        if (dto.getVariationIndex() < 0 || dto.getVariationIndex() >= flag.getVariations().size()) {
+            throw new RuntimeException("Invalid variation index: " + dto.getVariationIndex());
+        }
+
+        CompiledRule.validate(dto.getOperator(), dto.getValue());
+        if (RuleOperator.fromString(dto.getOperator()) == RuleOperator.IN_SEGMENT
+                && !segmentRepository.existsByKey(dto.getValue())) {
+            throw new RuntimeException("Segment not found: " + dto.getValue());
+        }
+        Rollout.validate(dto.getRolloutWeights(), flag.getVariations().size());
+    }
+
     @Transactional
-    public void toggleFlag(String key, boolean enabled) {
+    public void toggleFlag(String key, boolean enabled, Long expectedVersion) {
         log.info("Toggling flag {} to {}", key, enabled);
 
         FeatureFlag flag = featureFlagRepository.findByKey(key)
                 .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        if (expectedVersion != null && expectedVersion != flag.getVersion()) {
+            throw new OptimisticLockingFailureException("Feature flag " + key
+                    + " was changed by someone else (version " + flag.getVersion() + ", expected " + expectedVersion + ")");
+        }
 
         flag.setEnabled(enabled);
         featureFlagRepository.save(flag);
+        eventPublisher.publishEvent(new FlagChangedEvent(key, FlagChangeType.TOGGLED));
 
         log.info("Flag {} toggled to {}", key, enabled);
     }
 
+    @Transactional
+    public void updateRollout(String key, RolloutDto dto) {
+        log.info("Updating rollout for flag {} to {}", key, dto.getRolloutWeights());
+
+        FeatureFlag flag = featureFlagRepository.findByKey(key)
+                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+
+        Rollout.validate(dto.getRolloutWeights(), flag.getVariations().size());
+        flag.setRolloutWeights(blankToNull(dto.getRolloutWeights()));
+        flag.setBucketBy(blankToNull(dto.getBucketBy()));
+        featureFlagRepository.save(flag);
+        eventPublisher.publishEvent(new FlagChangedEvent(key, FlagChangeType.ROLLOUT_CHANGED));
+
+        log.info("Rollout updated for flag {}", key);
+    }
+
+    @Transactional
+    public void setDefaultVariation(String key, int variationIndex) {
+        log.info("Setting default variation of flag {} to {}", key, variationIndex);
+
+        FeatureFlag flag = featureFlagRepository.findByKey(key)
+                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        if (flag.getVariations().stream().noneMatch(v -> v.getIndex() == variationIndex)) {
+            throw new RuntimeException("Invalid variation index: " + variationIndex);
+        }
+
+        flag.setDefaultVariationIndex(variationIndex);
+        featureFlagRepository.save(flag);
+        eventPublisher.publishEvent(new FlagChangedEvent(key, FlagChangeType.DEFAULT_VARIATION_CHANGED));
+    }
+
     @Transactional
     public void deleteRule(String flagKey, String ruleId) {
         log.info("Deleting rule {} from flag {}", ruleId, flagKey);
 
-        FeatureFlag flag = featureFlagRepository.findByKey(flagKey)
+        FeatureFlag flag = featureFlagRepository.findByKeyForUpdate(flagKey)
                 .orElseThrow(() -> new RuntimeException("Feature flag not found: " + flagKey));
 
         Long ruleIdLong = Long.parseLong(ruleId);
@@ -134,188 +268,210 @@ public class FeatureFlagService {
 
         flag.getRules().remove(rule);
         ruleRepository.delete(rule);
+        eventPublisher.publishEvent(new FlagChangedEvent(flagKey, FlagChangeType.RULE_DELETED));
 
         log.info("Rule deleted successfully");
     }
 
+    /**
+     * Adds a prerequisite to {@code flagKey}, or changes the required variation of an
+     * existing one. Rejected if the prerequisite would close a cycle. Two concurrent
+     * edits can still race into a cycle; the snapshot then fails those flags closed.
+     */
     @Transactional
-    public void deleteFlag(String key) {
-        log.info("Deleting feature flag: {}", key);
+    public FeatureFlagDto addPrerequisite(String flagKey, PrerequisiteDto dto) {
+        log.info("Adding prerequisite {} to flag {}", dto.getFlagKey(), flagKey);
 
-        FeatureFlag flag = featureFlagRepository.findByKey(key)
-                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        FeatureFlag flag = featureFlagRepository.findByKeyForUpdate(flagKey)
+                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + flagKey));
+        if (flagKey.equals(dto.getFlagKey())) {
+            throw new RuntimeException("A flag cannot be its own prerequisite");
+        }
+        FeatureFlag prerequisite = featureFlagRepository.findByKey(dto.getFlagKey())
+                .orElseThrow(() -> new RuntimeException("Prerequisite flag not found: " + dto.getFlagKey()));
+        if (prerequisite.getVariations().stream().noneMatch(v -> v.getIndex() == dto.getVariationIndex())) {
+            throw new RuntimeException("Invalid variation index for " + dto.getFlagKey() + ": " + dto.getVariationIndex());
+        }
+        List<String> cycle = findPrerequisitePath(dto.getFlagKey(), flagKey);
+        if (cycle != null) {
+            throw new RuntimeException("Prerequisite would create a cycle: " + flagKey + " -> " + String.join(" -> ", cycle));
+        }
 
-        featureFlagRepository.delete(flag);
-        log.info("Feature flag deleted successfully: {}", key);
+        FlagPrerequisite existing = flag.getPrerequisites().stream()
+                .filter(p -> p.getPrerequisiteKey().equals(dto.getFlagKey()))
+                .findFirst()
+                .orElse(null);
+        if (existing != null) {
+            existing.setVariationIndex(dto.getVariationIndex());
+        } else {
+            FlagPrerequisite added = new FlagPrerequisite();
+            added.setFeatureFlag(flag);
+            added.setPrerequisiteKey(dto.getFlagKey());
+            added.setVariationIndex(dto.getVariationIndex());
+            flag.getPrerequisites().add(prerequisiteRepository.save(added));
+        }
+        eventPublisher.publishEvent(new FlagChangedEvent(flagKey, FlagChangeType.PREREQUISITES_CHANGED));
+        return convertToDto(flag);
     }
 
-    @Transactional(readOnly = true)
-    public FlagEvaluationResponse evaluateFlagWithContext(String key, Map<String, String> context) {
-        log.info("Evaluating flag: {} with context: {}", key, context);
+    @Transactional
+    public void removePrerequisite(String flagKey, String prerequisiteKey) {
+        log.info("Removing prerequisite {} from flag {}", prerequisiteKey, flagKey);
 
-        FeatureFlag flag = featureFlagRepository.findByKey(key)
-                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        FeatureFlag flag = featureFlagRepository.findByKeyForUpdate(flagKey)
+                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + flagKey));
+        FlagPrerequisite prerequisite = flag.getPrerequisites().stream()
+                .filter(p -> p.getPrerequisiteKey().equals(prerequisiteKey))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Prerequisite not found: " + prerequisiteKey));
+
+        flag.getPrerequisites().remove(prerequisite);
+        prerequisiteRepository.delete(prerequisite);
+        eventPublisher.publishEvent(new FlagChangedEvent(flagKey, FlagChangeType.PREREQUISITES_CHANGED));
+    }
 
-        FlagEvaluationResponse response = new FlagEvaluationResponse();
-        response.setFlagKey(key);
-
-        // Check if flag is globally disabled
-        if (!flag.isEnabled()) {
-            response.setEnabled(false);
-            response.setReason("flag_disabled");
-            setDefaultVariation(flag, response);
-            return response;
+    /**
+     * Path of prerequisite edges from {@code from} to {@code to} (ending in {@code to}),
+     * or {@code null} if {@code to} is not reachable.
+     */
+    private List<String> findPrerequisitePath(String from, String to) {
+        Map<String, List<String>> edges = new HashMap<>();
+        for (FlagPrerequisiteRepository.Edge edge : prerequisiteRepository.findAllEdges()) {
+            edges.computeIfAbsent(edge.getFlagKey(), k -> new ArrayList<>()).add(edge.getPrerequisiteKey());
         }
-
-        // Evaluate rules in order
-        List<Rule> sortedRules = flag.getRules().stream()
-                .sorted((r1, r2) -> Integer.compare(r1.getOrder(), r2.getOrder()))
-                .collect(Collectors.toList());
-
-        for (Rule rule : sortedRules) {
-            String contextValue = context.get(rule.getAttribute());
-
-            if (contextValue != null && evaluateCondition(rule, contextValue)) {
-                // Rule matched
-                Variation matchedVariation = flag.getVariations().stream()
-                        .filter(v -> v.getIndex() == rule.getVariationIndex())
-                        .findFirst()
-                        .orElse(null);
-
-                if (matchedVariation != null) {
-                    response.setEnabled(true);
-                    response.setVariation(matchedVariation.getName());
-                    response.setVariationValue(matchedVariation.getValue());
-                    response.setReason("rule_match");
-                    response.setMatchedRuleId(rule.getId().toString());
-
-                    log.info("Rule matched for flag {}: rule={}, variation={}",
-                            key, rule.getId(), matchedVariation.getName());
-
-                    return response;
+        Map<String, String> reachedFrom = new HashMap<>();
+        Set<String> visited = new HashSet<>(Set.of(from));
+        List<String> queue = new ArrayList<>(List.of(from));
+        for (int i = 0; i < queue.size(); i++) {
+            String current = queue.get(i);
+            if (current.equals(to)) {
+                List<String> path = new ArrayList<>();
+                for (String step = to; step != null; step = reachedFrom.get(step)) {
+                    path.add(0, step);
+                }
+                return path;
+            }
+            for (String next : edges.getOrDefault(current, List.of())) {
+                if (visited.add(next)) {
+                    reachedFrom.put(next, current);
+                    queue.add(next);
                 }
             }
         }
-
-        // No rules matched - use default variation
-        response.setEnabled(true);
-        response.setReason("default_variation");
-        setDefaultVariation(flag, response);
-
-        return response;
+        return null;
     }
 
-    @Transactional(readOnly = true)
-    public FlagEvaluationResponse evaluateFlagSimple(String key, String attribute, String value) {
-        log.info("Simple evaluation for flag: {} with {}={}", key, attribute, value);
+    @Transactional
+    public void deleteFlag(String key) {
+        log.info("Deleting feature flag: {}", key);
 
         FeatureFlag flag = featureFlagRepository.findByKey(key)
                 .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        List<String> dependents = prerequisiteRepository.findDependentFlagKeys(key);
+        if (!dependents.isEmpty()) {
+            throw new RuntimeException("Flag is a prerequisite of: " + String.join(", ", dependents));
+        }
 
-        FlagEvaluationResponse response = new FlagEvaluationResponse();
-        response.setFlagKey(key);
+        featureFlagRepository.delete(flag);
+        eventPublisher.publishEvent(new FlagChangedEvent(key, FlagChangeType.DELETED));
+        log.info("Feature flag deleted successfully: {}", key);
+    }
 
-        if (!flag.isEnabled()) {
-            response.setEnabled(false);
-            response.setReason("flag_disabled");
-            setDefaultVariation(flag, response);
-            return response;
-        }
+    public FlagEvaluationResponse evaluateFlagWithContext(String key, Map<String, String> context) {
+        FlagSnapshot snapshot = flagSnapshotService.current();
+        CompiledFlag flag = getCompiledFlag(snapshot, key);
+        long start = System.nanoTime();
+        EvaluationResult result = snapshot.evaluate(flag, context);
+        recordEvaluation(result, context, start);
+        return toResponse(result);
+    }
 
-        // Check rules
-        for (Rule rule : flag.getRules()) {
-            if (rule.getAttribute().equals(attribute) && evaluateCondition(rule, value)) {
-                Variation matchedVariation = flag.getVariations().stream()
-                        .filter(v -> v.getIndex() == rule.getVariationIndex())
-                        .findFirst()
-                        .orElse(null);
-
-                if (matchedVariation != null) {
-                    response.setEnabled(true);
-                    response.setVariation(matchedVariation.getName());
-                    response.setVariationValue(matchedVariation.getValue());
-                    response.setReason("rule_match");
-                    response.setMatchedRuleId(rule.getId().toString());
-                    return response;
-                }
+    public Map<String, FlagEvaluationResponse> evaluateFlags(List<String> keys, Map<String, String> context) {
+        FlagSnapshot snapshot = flagSnapshotService.current();
+        Collection<String> flagKeys = keys == null || keys.isEmpty() ? snapshot.getFlags().keySet() : keys;
+        Map<String, String> safeContext = context != null ? context : Map.of();
+
+        Map<String, FlagEvaluationResponse> responses = new LinkedHashMap<>();
+        // Shared by all flags of the request, so common prerequisites are evaluated once
+        Map<String, EvaluationResult> memo = new HashMap<>();
+        for (String key : flagKeys) {
+            CompiledFlag flag = snapshot.get(key);
+            evaluationMetrics.recordSnapshotLookup(flag != null);
+            if (flag == null) {
+                evaluationMetrics.recordError();
+                FlagEvaluationResponse missing = new FlagEvaluationResponse();
+                missing.setEnabled(false);
+                missing.setFlagKey(key);
+                missing.setReason("error: Feature flag not found: " + key);
+                responses.put(key, missing);
+            } else {
+                long start = System.nanoTime();
+                EvaluationResult result = snapshot.evaluate(flag, safeContext, memo);
+                recordEvaluation(result, safeContext, start);
+                responses.put(key, toResponse(result));
             }
         }
-
-        response.setEnabled(true);
-        response.setReason("default_variation");
-        setDefaultVariation(flag, response);
-
-        return response;
+        return responses;
     }
 
-    private void setDefaultVariation(FeatureFlag flag, FlagEvaluationResponse response) {
-        if (!flag.getVariations().isEmpty()) {
-            int defaultIndex = flag.getDefaultVariationIndex() != null ?
-                    flag.getDefaultVariationIndex() : 0;
-
-            Variation defaultVariation = flag.getVariations().stream()
-                    .filter(v -> v.getIndex() == defaultIndex)
-                    .findFirst()
-                    .orElse(flag.getVariations().get(0));
-
-            response.setVariation(defaultVariation.getName());
-            response.setVariationValue(defaultVariation.getValue());
-        }
+    public FlagEvaluationResponse evaluateFlagSimple(String key, String attribute, String value) {
+        FlagSnapshot snapshot = flagSnapshotService.current();
+        CompiledFlag flag = getCompiledFlag(snapshot, key);
+        long start = System.nanoTime();
+        EvaluationResult result = snapshot.evaluate(flag, attribute, value);
+        recordEvaluation(result, Map.of(attribute, value), start);
+        return toResponse(result);
     }
 
     public boolean evaluateFlag(String key, String attribute, String value) {
-        log.info("Evaluating flag: {} for attribute: {} with value: {}", key, attribute, value);
-
-        FeatureFlag flag = featureFlagRepository.findByKey(key)
-                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + key));
+        FlagSnapshot snapshot = flagSnapshotService.current();
+        return snapshot.isEnabledFor(getCompiledFlag(snapshot, key), attribute, value);
+    }
 
-        if (!flag.isEnabled()) {
-            return false;
+    private CompiledFlag getCompiledFlag(FlagSnapshot snapshot, String key) {
+        CompiledFlag flag = snapshot.get(key);
+        evaluationMetrics.recordSnapshotLookup(flag != null);
+        if (flag == null) {
+            throw new RuntimeException("Feature flag not found: " + key);
         }
+        return flag;
+    }
 
-        // Check rules in order
-        for (Rule rule : flag.getRules()) {
-            if (rule.getAttribute().equals(attribute) && evaluateCondition(rule, value)) {
-                return true;
-            }
+    private void recordEvaluation(EvaluationResult result, Map<String, String> context, long startNanos) {
+        evaluationMetrics.recordEvaluation(result, System.nanoTime() - startNanos);
+        for (EvaluationListener listener : evaluationListeners) {
+            listener.onEvaluation(result, context);
         }
-
-        return false;
     }
 
-    private boolean evaluateCondition(Rule rule, String userValue) {
-        String ruleValue = rule.getValue();
-
-        switch (rule.getOperator().toLowerCase()) {
-            case "equals":
-                return userValue.equals(ruleValue);
-            case "contains":
-                return userValue.contains(ruleValue);
-            case "startswith":
-                return userValue.startsWith(ruleValue);
-            case "endswith":
-                return userValue.endsWith(ruleValue);
-            case "matches":
-                return userValue.matches(ruleValue);
-            case "in":
-                String[] values = ruleValue.split(",");
-                for (String val : values) {
-                    if (userValue.equals(val.trim())) {
-                        return true;
-                    }
-                }
-                return false;
-            default:
-                return false;
+    private FlagEvaluationResponse toResponse(EvaluationResult result) {
+        FlagEvaluationResponse response = new FlagEvaluationResponse();
+        response.setFlagKey(result.getFlagKey());
+        response.setEnabled(result.isEnabled());
+        response.setReason(result.getReason());
+        if (result.getVariation() != null) {
+            response.setVariation(result.getVariation().getName());
+            response.setVariationValue(result.getVariation().getValue());
         }
+        if (result.getMatchedRule() != null) {
+            response.setMatchedRuleId(result.getMatchedRule().getId().toString());
+        }
+        return response;
     }
 
-    private FeatureFlagDto convertToDto(FeatureFlag flag) {
+    FeatureFlagDto convertToDto(FeatureFlag flag) {
         FeatureFlagDto dto = new FeatureFlagDto();
         dto.setKey(flag.getKey());
         dto.setName(flag.getName());
         dto.setDescription(flag.getDescription());
         dto.setEnabled(flag.isEnabled());
+        dto.setRolloutWeights(flag.getRolloutWeights());
+        dto.setBucketBy(flag.getBucketBy());
+        dto.setVersion(flag.getVersion());
+        flag.getVariations().stream()
+                .filter(v -> flag.getDefaultVariationIndex() != null && v.getIndex() == flag.getDefaultVariationIndex())
+                .findFirst()
+                .ifPresent(v -> dto.setDefaultVariation(v.getName()));
 
         dto.setVariations(flag.getVariations().stream()
                 .sorted((v1, v2) -> Integer.compare(v1.getIndex(), v2.getIndex()))
@@ -327,6 +483,11 @@ public class FeatureFlagService {
                 .map(this::convertRuleToDto)
                 .collect(Collectors.toList()));
 
+        dto.setPrerequisites(flag.getPrerequisites().stream()
+                .map(p -> new PrerequisiteDto(p.getPrerequisiteKey(), p.getVariationIndex()))
+                .sorted((p1, p2) -> p1.getFlagKey().compareTo(p2.getFlagKey()))
+                .collect(Collectors.toList()));
+
         return dto;
     }
 
@@ -341,6 +502,12 @@ public class FeatureFlagService {
         dto.setOperator(rule.getOperator());
         dto.setValue(rule.getValue());
         dto.setVariationIndex(rule.getVariationIndex());
+        dto.setRolloutWeights(rule.getRolloutWeights());
+        dto.setBucketBy(rule.getBucketBy());
         return dto;
     }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
 }
\ No newline at end of file
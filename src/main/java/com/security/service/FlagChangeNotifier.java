@@ -0,0 +1,77 @@
+package com.security.service;
+
+import com.security.config.ClusterSyncProperties;
+import com.security.event.FlagChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Tells the other nodes about a committed flag change with Postgres
+ * {@code NOTIFY}. The payload is {@code type:version:key}; receivers reload the
+ * flag unless their snapshot already holds that version. Bulk changes use the
+ * key {@value #ALL_FLAGS} and make receivers reload everything. Segment changes
+ * use the type {@value #SEGMENT} with the segment key.
+ */
+@Component
+@Slf4j
+public class FlagChangeNotifier {
+
+    /**
+     * Version sent for a flag that no longer exists.
+     */
+    public static final long NO_VERSION = -1L;
+
+    public static final String ALL_FLAGS = "*";
+
+    public static final String SEGMENT = "SEGMENT";
+
+    private final ClusterSyncProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate notifyTransaction;
+
+    public FlagChangeNotifier(ClusterSyncProperties properties, JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        // Called after the mutating transaction committed, so it needs one of its own
+        this.notifyTransaction = new TransactionTemplate(transactionManager);
+        this.notifyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void notifyChange(FlagChangedEvent event, long version) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        send(payload(event, version));
+    }
+
+    public void notifySegmentChange(String segmentKey, long version) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        send(segmentPayload(segmentKey, version));
+    }
+
+    static String payload(FlagChangedEvent event, long version) {
+        String flagKey = event.getFlagKey() != null ? event.getFlagKey() : ALL_FLAGS;
+        return event.getType() + ":" + version + ":" + flagKey;
+    }
+
+    static String segmentPayload(String segmentKey, long version) {
+        return SEGMENT + ":" + version + ":" + segmentKey;
+    }
+
+    private void send(String payload) {
+        try {
+            notifyTransaction.executeWithoutResult(status -> jdbcTemplate.query(
+                    "SELECT pg_notify(?, ?)", rs -> null, properties.getChannel(), payload));
+        } catch (RuntimeException e) {
+            // Other nodes pick the change up on their next reconciliation
+            log.warn("Failed to notify other nodes of change {}", payload, e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.security.service;
+
+import com.security.config.ClusterSyncProperties;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.CompiledSegment;
+import com.security.evaluation.FlagSnapshot;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.SegmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the local snapshot in step with changes committed on other nodes.
+ * <p>
+ * A daemon thread holds its own connection (outside the pool) in {@code LISTEN}
+ * on the change channel and reloads each notified flag whose version differs
+ * from the snapshot. Notifications are not persisted, so anything missed while
+ * the connection was down, or sent by a node that crashed right after commit,
+ * is caught by a periodic comparison of stored versions with the snapshot.
+ * Segments are kept in step the same way.
+ * <p>
+ * Remote changes are republished as {@link FlagChangedEvent}s outside a
+ * transaction so local stream subscribers see them too.
+ */
+@Component
+@Slf4j
+public class FlagChangeSubscriber {
+
+    private final ClusterSyncProperties properties;
+    private final DataSourceProperties dataSourceProperties;
+    private final FlagSnapshotService flagSnapshotService;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final SegmentRepository segmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private Thread listener;
+
+    public FlagChangeSubscriber(ClusterSyncProperties properties, DataSourceProperties dataSourceProperties,
+                                FlagSnapshotService flagSnapshotService, FeatureFlagRepository featureFlagRepository,
+                                SegmentRepository segmentRepository, ApplicationEventPublisher eventPublisher) {
+        this.properties = properties;
+        this.dataSourceProperties = dataSourceProperties;
+        this.flagSnapshotService = flagSnapshotService;
+        this.featureFlagRepository = featureFlagRepository;
+        this.segmentRepository = segmentRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        listener = new Thread(this::listen, "flag-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                log.info("Listening for flag changes on channel {}", properties.getChannel());
+                if (reconnecting) {
+                    reconcile();
+                }
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int timeoutMillis = (int) properties.getPollTimeout().toMillis();
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(timeoutMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            // One bad payload or failed reload must not drop the connection
+                            // and with it the notifications that follow
+                            try {
+                                apply(notification.getParameter());
+                            } catch (RuntimeException e) {
+                                log.warn("Failed to apply flag change notification {}", notification.getParameter(), e);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Flag change listener failed, reconnecting in {}", properties.getReconnectDelay(), e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(properties.getReconnectDelay().toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    void apply(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3) {
+            log.warn("Ignoring malformed flag change notification: {}", payload);
+            return;
+        }
+        long version;
+        try {
+            version = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring flag change notification with a bad version: {}", payload);
+            return;
+        }
+        if (parts[0].equals(FlagChangeNotifier.SEGMENT)) {
+            CompiledSegment local = flagSnapshotService.segments().get(parts[2]);
+            long localVersion = local != null && local.exists() ? local.getVersion() : FlagChangeNotifier.NO_VERSION;
+            if (localVersion != version) {
+                flagSnapshotService.reloadSegment(parts[2]);
+            }
+            return;
+        }
+        FlagChangeType type;
+        try {
+            type = FlagChangeType.valueOf(parts[0]);
+        } catch (IllegalArgumentException e) {
+            // Possibly sent by a newer node; reconciliation picks the change up
+            log.warn("Ignoring flag change notification of unknown type: {}", payload);
+            return;
+        }
+        String flagKey = parts[2];
+
+        if (flagKey.equals(FlagChangeNotifier.ALL_FLAGS)) {
+            flagSnapshotService.reloadAll();
+            eventPublisher.publishEvent(new FlagChangedEvent(null, type));
+            return;
+        }
+        CompiledFlag local = flagSnapshotService.current().get(flagKey);
+        if ((local != null ? local.getVersion() : FlagChangeNotifier.NO_VERSION) == version) {
+            // Our own change, or one the reconciliation already picked up
+            return;
+        }
+        refresh(flagKey, type);
+    }
+
+    @Scheduled(fixedDelayString = "${feature-flags.cluster-sync.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        FlagSnapshot snapshot = flagSnapshotService.current();
+        Map<String, FeatureFlagRepository.FlagVersion> stored = new HashMap<>();
+        for (FeatureFlagRepository.FlagVersion row : featureFlagRepository.findAllVersions()) {
+            stored.put(row.getFlagKey(), row);
+        }
+
+        // A flag deleted and re-created meanwhile starts again at version 0, so ids are compared too
+        int refreshed = 0;
+        for (FeatureFlagRepository.FlagVersion row : stored.values()) {
+            CompiledFlag local = snapshot.get(row.getFlagKey());
+            if (local == null) {
+                refresh(row.getFlagKey(), FlagChangeType.CREATED);
+                refreshed++;
+            } else if (!Objects.equals(local.getId(), row.getId()) || local.getVersion() != row.getVersion()) {
+                refresh(row.getFlagKey(), FlagChangeType.UPDATED);
+                refreshed++;
+            }
+        }
+        for (String flagKey : snapshot.getFlags().keySet()) {
+            if (!stored.containsKey(flagKey)) {
+                refresh(flagKey, FlagChangeType.DELETED);
+                refreshed++;
+            }
+        }
+
+        Map<String, CompiledSegment> localSegments = flagSnapshotService.segments().existing();
+        Map<String, SegmentRepository.SegmentVersion> storedSegments = new HashMap<>();
+        for (SegmentRepository.SegmentVersion row : segmentRepository.findAllVersions()) {
+            storedSegments.put(row.getSegmentKey(), row);
+        }
+        for (SegmentRepository.SegmentVersion row : storedSegments.values()) {
+            CompiledSegment local = localSegments.get(row.getSegmentKey());
+            if (local == null || !Objects.equals(local.getId(), row.getId()) || local.getVersion() != row.getVersion()) {
+                flagSnapshotService.reloadSegment(row.getSegmentKey());
+                refreshed++;
+            }
+        }
+        for (String segmentKey : localSegments.keySet()) {
+            if (!storedSegments.containsKey(segmentKey)) {
+                flagSnapshotService.reloadSegment(segmentKey);
+                refreshed++;
+            }
+        }
+        if (refreshed > 0) {
+            log.info("Reconciliation refreshed {} stale flags and segments", refreshed);
+        }
+    }
+
+    private void refresh(String flagKey, FlagChangeType type) {
+        flagSnapshotService.reload(flagKey);
+        eventPublisher.publishEvent(new FlagChangedEvent(flagKey, type));
+    }
+}
@@ -0,0 +1,149 @@
+package com.security.service;
+
+import com.security.config.FlagMetricsProperties;
+import com.security.evaluation.EvaluationResult;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for flag evaluation. Meters are resolved once per flag and
+ * reason and cached, so recording an evaluation does not build tags.
+ * <p>
+ * Only the first {@code max-tagged-flags} flags seen get their own meters; the
+ * rest share meters tagged {@value #OTHER_FLAGS}. Deleting a flag removes its
+ * meters and frees its place.
+ * <p>
+ * Repository call timings are already published by Spring Boot as
+ * {@code spring.data.repository.invocations}.
+ */
+@Component
+public class FlagEvaluationMetrics {
+
+    public static final String REASON_ERROR = "error";
+    public static final String OTHER_FLAGS = "_other";
+
+    private final MeterRegistry registry;
+    private final FlagMetricsProperties properties;
+    private final Map<String, FlagMeters> flagMeters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> reasonCounters = new ConcurrentHashMap<>();
+
+    private final Counter snapshotHits;
+    private final Counter snapshotMisses;
+
+    private volatile FlagMeters otherFlags;
+
+    public FlagEvaluationMetrics(MeterRegistry registry, FlagMetricsProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+        this.snapshotHits = snapshotCounter("hit");
+        this.snapshotMisses = snapshotCounter("miss");
+    }
+
+    public void recordEvaluation(EvaluationResult result, long elapsedNanos) {
+        FlagMeters meters = flagMeters.get(result.getFlagKey());
+        if (meters == null) {
+            meters = metersFor(result.getFlagKey());
+        }
+        meters.timer(result.getReason()).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        reasonCounter(result.getReason()).increment();
+        if (result.getMatchedRule() != null) {
+            meters.rulePosition.record(result.getMatchedRule().getPosition());
+        }
+    }
+
+    public void recordError() {
+        reasonCounter(REASON_ERROR).increment();
+    }
+
+    public void recordSnapshotLookup(boolean hit) {
+        (hit ? snapshotHits : snapshotMisses).increment();
+    }
+
+    public <T> T timeSnapshotLoad(String scope, Supplier<T> load) {
+        return Timer.builder("feature_flags.snapshot.load")
+                .description("Time spent loading flags from the database into the snapshot")
+                .tag("scope", scope)
+                .register(registry)
+                .record(load);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlagChanged(FlagChangedEvent event) {
+        if (event.getType() == FlagChangeType.DELETED) {
+            FlagMeters removed = flagMeters.remove(event.getFlagKey());
+            if (removed != null) {
+                removed.remove();
+            }
+        }
+    }
+
+    // Concurrent first evaluations of new flags can overshoot the cap by a few
+    private FlagMeters metersFor(String flagKey) {
+        if (flagMeters.size() < properties.getMaxTaggedFlags()) {
+            return flagMeters.computeIfAbsent(flagKey, FlagMeters::new);
+        }
+        FlagMeters other = otherFlags;
+        if (other == null) {
+            // Registering twice returns the same meters, so a race here is harmless
+            other = new FlagMeters(OTHER_FLAGS);
+            otherFlags = other;
+        }
+        return other;
+    }
+
+    private Counter reasonCounter(String reason) {
+        return reasonCounters.computeIfAbsent(reason, r -> Counter.builder("feature_flags.evaluations")
+                .description("Flag evaluations by outcome")
+                .tag("reason", r)
+                .register(registry));
+    }
+
+    private Counter snapshotCounter(String result) {
+        return Counter.builder("feature_flags.snapshot.lookups")
+                .description("Flag lookups served from the in-memory snapshot")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private class FlagMeters {
+        private final String flagKey;
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+        private final DistributionSummary rulePosition;
+
+        FlagMeters(String flagKey) {
+            this.flagKey = flagKey;
+            this.rulePosition = DistributionSummary.builder("feature_flags.rule_match.position")
+                    .description("Zero-based position of the rule that matched")
+                    .tag("flag", flagKey)
+                    .register(registry);
+        }
+
+        Timer timer(String reason) {
+            Timer timer = timers.get(reason);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(reason, r -> Timer.builder("feature_flags.evaluation")
+                        .description("Flag evaluation latency")
+                        .tag("flag", flagKey)
+                        .tag("reason", r)
+                        .register(registry));
+            }
+            return timer;
+        }
+
+        void remove() {
+            timers.values().forEach(registry::remove);
+            registry.remove(rulePosition);
+        }
+    }
+}
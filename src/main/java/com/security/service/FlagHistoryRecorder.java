@@ -0,0 +1,88 @@
+package com.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.entity.FeatureFlag;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends every flag change to {@code flag_change_log} inside the transaction
+ * making it, so the log and the flags cannot disagree: a rolled back change
+ * leaves no entry, and a committed one always has one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FlagHistoryRecorder {
+
+    private static final String INSERT_SQL = "INSERT INTO flag_change_log "
+            + "(flag_key, change_type, state, changed_by, changed_at) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SYSTEM_USER = "system";
+
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagService featureFlagService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Changes replayed from other nodes arrive outside a transaction and are not logged again
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onFlagChanged(FlagChangedEvent event) {
+        if (event.getFlagKey() == null) {
+            // Bulk changes record their flags themselves (see FlagTransferService)
+            return;
+        }
+        record(List.of(event.getFlagKey()), event.getType());
+    }
+
+    /**
+     * Logs the current state of {@code flagKeys}; a key that no longer exists is
+     * logged as deleted. Must run in the transaction that changed them.
+     */
+    public void record(Collection<String> flagKeys, FlagChangeType type) {
+        Map<String, FeatureFlag> flags = new HashMap<>();
+        for (FeatureFlag flag : featureFlagRepository.findByKeyIn(flagKeys)) {
+            flags.put(flag.getKey(), flag);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String changedBy = currentUser();
+
+        List<Object[]> rows = new ArrayList<>(flagKeys.size());
+        for (String flagKey : flagKeys) {
+            FeatureFlag flag = flags.get(flagKey);
+            rows.add(new Object[]{flagKey, type.name(), flag != null ? toJson(flag) : null, changedBy, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private String toJson(FeatureFlag flag) {
+        try {
+            return objectMapper.writeValueAsString(featureFlagService.convertToDto(flag));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not record history of flag " + flag.getKey(), e);
+        }
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : SYSTEM_USER;
+    }
+}
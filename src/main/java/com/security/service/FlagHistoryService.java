@@ -0,0 +1,254 @@
+package com.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.config.HistoryProperties;
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagChangeLogDto;
+import com.security.dto.FlagHistoryDiffDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.FlagChangeLogEntry;
+import com.security.entity.FlagConfigSnapshot;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagChangeLogRepository;
+import com.security.repository.FlagConfigSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reads the flag change log: paginated history, the configuration at any point
+ * in time, and differences between two points.
+ * <p>
+ * A point-in-time read starts from the newest {@link FlagConfigSnapshot} taken
+ * before that time and replays the log entries after it. Entries hold complete
+ * flags, so replaying is just "last entry per key wins". Snapshots are taken
+ * when enough entries pile up, which bounds that replay.
+ */
+@Service
+@Slf4j
+public class FlagHistoryService {
+
+    // Arbitrary, but must be the same on every node
+    private static final long SNAPSHOT_LOCK_KEY = 0x464c4147484953L;
+
+    private static final TypeReference<Map<String, FeatureFlagDto>> CONFIG_TYPE = new TypeReference<>() {
+    };
+
+    private final HistoryProperties properties;
+    private final FlagChangeLogRepository changeLogRepository;
+    private final FlagConfigSnapshotRepository snapshotRepository;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagService featureFlagService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+
+    public FlagHistoryService(HistoryProperties properties, FlagChangeLogRepository changeLogRepository,
+                              FlagConfigSnapshotRepository snapshotRepository,
+                              FeatureFlagRepository featureFlagRepository, FeatureFlagService featureFlagService,
+                              JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.changeLogRepository = changeLogRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.featureFlagRepository = featureFlagRepository;
+        this.featureFlagService = featureFlagService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * One page of the log, newest first. Pass the smallest id of the previous page
+     * as {@code beforeId} (null for the first page); {@code flagKey} is optional.
+     */
+    @Transactional(readOnly = true)
+    public List<FlagChangeLogDto> getHistory(String flagKey, Long beforeId, int limit) {
+        long before = beforeId != null ? beforeId : Long.MAX_VALUE;
+        PageRequest page = PageRequest.ofSize(limit);
+        List<FlagChangeLogEntry> entries = flagKey != null
+                ? changeLogRepository.findFlagPageBefore(flagKey, before, page)
+                : changeLogRepository.findPageBefore(before, page);
+        return entries.stream().map(this::toDto).toList();
+    }
+
+    /**
+     * The flag as it was at {@code at}, or {@code null} if it did not exist then.
+     */
+    @Transactional(readOnly = true)
+    public FeatureFlagDto getFlagAt(String flagKey, LocalDateTime at) {
+        FlagConfigSnapshot snapshot = baseSnapshot(at);
+        Optional<FlagChangeLogEntry> latest = changeLogRepository
+                .findFirstByFlagKeyAndIdGreaterThanAndChangedAtLessThanEqualOrderByIdDesc(flagKey, snapshot.getLastLogId(), at);
+        if (latest.isPresent()) {
+            // A deletion has no state
+            return latest.get().getState() != null ? readFlag(latest.get().getState()) : null;
+        }
+        return readConfig(snapshot.getState()).get(flagKey);
+    }
+
+    /**
+     * Every flag as it was at {@code at}, by key.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, FeatureFlagDto> getConfigAt(LocalDateTime at) {
+        FlagConfigSnapshot snapshot = baseSnapshot(at);
+        Map<String, FeatureFlagDto> config = readConfig(snapshot.getState());
+        for (FlagChangeLogEntry entry : changeLogRepository.findAfter(snapshot.getLastLogId(), at)) {
+            apply(config, entry);
+        }
+        return config;
+    }
+
+    @Transactional(readOnly = true)
+    public FlagHistoryDiffDto diff(LocalDateTime from, LocalDateTime to) {
+        Map<String, FeatureFlagDto> before = getConfigAt(from);
+        Map<String, FeatureFlagDto> after = getConfigAt(to);
+
+        FlagHistoryDiffDto diff = new FlagHistoryDiffDto(from, to);
+        for (String key : new TreeSet<>(after.keySet())) {
+            FeatureFlagDto old = before.get(key);
+            if (old == null) {
+                diff.getAdded().add(key);
+                continue;
+            }
+            List<String> fields = changedFields(old, after.get(key));
+            if (!fields.isEmpty()) {
+                diff.getChanged().put(key, fields);
+            }
+        }
+        for (String key : new TreeSet<>(before.keySet())) {
+            if (!after.containsKey(key)) {
+                diff.getRemoved().add(key);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Takes a snapshot when enough has changed since the last one. Runs on every
+     * node; an advisory lock lets only one of them build it.
+     */
+    @Scheduled(fixedDelayString = "${feature-flags.history.check-interval-ms:60000}")
+    public void compact() {
+        if (!properties.isSnapshotsEnabled()) {
+            return;
+        }
+        transaction.executeWithoutResult(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, SNAPSHOT_LOCK_KEY))) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            Long settledId = changeLogRepository.findMaxIdBefore(now.minus(properties.getSettleTime()));
+            FlagConfigSnapshot last = snapshotRepository.findFirstByOrderByIdDesc().orElse(null);
+            if (last == null) {
+                snapshotRepository.save(initialSnapshot(now, settledId != null ? settledId : 0L));
+                return;
+            }
+            if (settledId == null || settledId <= last.getLastLogId()) {
+                return;
+            }
+            long pending = changeLogRepository.countByIdGreaterThan(last.getLastLogId());
+            if (pending < properties.getSnapshotEveryEntries()
+                    && last.getTakenAt().plus(properties.getSnapshotInterval()).isAfter(now)) {
+                return;
+            }
+
+            Map<String, FeatureFlagDto> config = readConfig(last.getState());
+            for (FlagChangeLogEntry entry : changeLogRepository.findAfter(last.getLastLogId(), now)) {
+                if (entry.getId() > settledId) {
+                    break;
+                }
+                apply(config, entry);
+            }
+            snapshotRepository.save(new FlagConfigSnapshot(null, settledId, now, config.size(), writeConfig(config)));
+            log.info("Took flag history snapshot of {} flags up to log entry {}", config.size(), settledId);
+        });
+    }
+
+    // The live flags become the first snapshot; history starts there
+    private FlagConfigSnapshot initialSnapshot(LocalDateTime now, long lastLogId) {
+        Map<String, FeatureFlagDto> config = new TreeMap<>();
+        for (FeatureFlag flag : featureFlagRepository.findAllWithVariations()) {
+            config.put(flag.getKey(), featureFlagService.convertToDto(flag));
+        }
+        log.info("Took initial flag history snapshot of {} flags", config.size());
+        return new FlagConfigSnapshot(null, lastLogId, now, config.size(), writeConfig(config));
+    }
+
+    private FlagConfigSnapshot baseSnapshot(LocalDateTime at) {
+        return snapshotRepository.findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(at)
+                .orElseThrow(() -> new RuntimeException("No flag history before " + at));
+    }
+
+    private void apply(Map<String, FeatureFlagDto> config, FlagChangeLogEntry entry) {
+        if (entry.getState() == null) {
+            config.remove(entry.getFlagKey());
+        } else {
+            config.put(entry.getFlagKey(), readFlag(entry.getState()));
+        }
+    }
+
+    // Compares the JSON form, so every field of FeatureFlagDto is covered
+    private List<String> changedFields(FeatureFlagDto before, FeatureFlagDto after) {
+        JsonNode a = objectMapper.valueToTree(before);
+        JsonNode b = objectMapper.valueToTree(after);
+        List<String> fields = new ArrayList<>();
+        Iterator<String> names = b.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!name.equals("version") && !b.get(name).equals(a.get(name))) {
+                fields.add(name);
+            }
+        }
+        return fields;
+    }
+
+    private FlagChangeLogDto toDto(FlagChangeLogEntry entry) {
+        return new FlagChangeLogDto(entry.getId(), entry.getFlagKey(), entry.getChangeType(), entry.getChangedBy(),
+                entry.getChangedAt(), entry.getState() != null ? readFlag(entry.getState()) : null);
+    }
+
+    private FeatureFlagDto readFlag(String json) {
+        try {
+            return objectMapper.readValue(json, FeatureFlagDto.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable flag history entry: " + e.getOriginalMessage());
+        }
+    }
+
+    private Map<String, FeatureFlagDto> readConfig(String json) {
+        try {
+            return new HashMap<>(objectMapper.readValue(json, CONFIG_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable flag history snapshot: " + e.getOriginalMessage());
+        }
+    }
+
+    private String writeConfig(Map<String, FeatureFlagDto> config) {
+        try {
+            return objectMapper.writeValueAsString(new TreeMap<>(config));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not write flag history snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.security.service;
+
+import com.security.entity.FeatureFlag;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.CompiledSegment;
+import com.security.evaluation.FlagSnapshot;
+import com.security.evaluation.SegmentRegistry;
+import com.security.event.FlagChangedEvent;
+import com.security.event.SegmentChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the in-process {@link FlagSnapshot} used by flag evaluation. The snapshot
+ * is loaded once at startup and refreshed after every committed flag mutation;
+ * the other nodes are then notified through {@link FlagChangeNotifier}.
+ * <p>
+ * Segment memberships live in a {@link SegmentRegistry} shared by all compiled
+ * flags; a segment change replaces only that segment's membership.
+ */
+@Service
+@Slf4j
+public class FlagSnapshotService {
+
+    private final FeatureFlagRepository featureFlagRepository;
+    private final TransactionTemplate readTransaction;
+    private final FlagEvaluationMetrics evaluationMetrics;
+    private final FlagChangeNotifier changeNotifier;
+    private final SegmentService segmentService;
+    private final SegmentRegistry segments = new SegmentRegistry();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile FlagSnapshot snapshot;
+
+    public FlagSnapshotService(FeatureFlagRepository featureFlagRepository,
+                               PlatformTransactionManager transactionManager,
+                               FlagEvaluationMetrics evaluationMetrics,
+                               FlagChangeNotifier changeNotifier,
+                               SegmentService segmentService) {
+        this.featureFlagRepository = featureFlagRepository;
+        this.segmentService = segmentService;
+        this.evaluationMetrics = evaluationMetrics;
+        this.changeNotifier = changeNotifier;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public FlagSnapshot current() {
+        FlagSnapshot current = snapshot;
+        return current != null ? current : reloadAll();
+    }
+
+    public SegmentRegistry segments() {
+        return segments;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public FlagSnapshot reloadAll() {
+        refreshLock.lock();
+        try {
+            // Seeding with the boot time keeps versions from repeating across restarts
+            long version = snapshot != null ? snapshot.getVersion() + 1 : System.currentTimeMillis();
+            FlagSnapshot loaded = evaluationMetrics.timeSnapshotLoad("all", () -> readTransaction.execute(status -> {
+                // Segments first, so flags compile against current memberships
+                Set<String> stale = new HashSet<>(segments.existing().keySet());
+                for (CompiledSegment segment : segmentService.loadAllSegments()) {
+                    segments.put(segment);
+                    stale.remove(segment.getKey());
+                }
+                stale.forEach(segments::remove);
+
+                Map<String, CompiledFlag> flags = new HashMap<>();
+                for (FeatureFlag flag : featureFlagRepository.findAllWithVariations()) {
+                    flags.put(flag.getKey(), CompiledFlag.from(flag, segments));
+                }
+                return new FlagSnapshot(flags, version);
+            }));
+            snapshot = loaded;
+            log.info("Loaded flag snapshot version {} with {} flags", loaded.getVersion(), loaded.getFlags().size());
+            return loaded;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    public FlagSnapshot reload(String flagKey) {
+        refreshLock.lock();
+        try {
+            if (snapshot == null) {
+                return reloadAll();
+            }
+            CompiledFlag compiled = evaluationMetrics.timeSnapshotLoad("flag",
+                    () -> readTransaction.execute(status -> featureFlagRepository.findByKey(flagKey)
+                            .map(flag -> CompiledFlag.from(flag, segments))
+                            .orElse(null)));
+            CompiledFlag existing = snapshot.get(flagKey);
+            if (compiled == null ? existing == null
+                    : existing != null && existing.getVersion() == compiled.getVersion()) {
+                // Already current; keep the snapshot (and its version) as is
+                return snapshot;
+            }
+            FlagSnapshot updated = snapshot.with(flagKey, compiled);
+            snapshot = updated;
+            log.info("Refreshed flag {} in snapshot version {}", flagKey, updated.getVersion());
+            return updated;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Reloads one segment's membership. Flags referencing it pick the new members
+     * up through the registry; the flag snapshot itself is left as is.
+     */
+    public CompiledSegment reloadSegment(String segmentKey) {
+        refreshLock.lock();
+        try {
+            CompiledSegment loaded = evaluationMetrics.timeSnapshotLoad("segment",
+                    () -> readTransaction.execute(status -> segmentService.loadSegment(segmentKey)));
+            if (loaded == null) {
+                segments.remove(segmentKey);
+            } else {
+                segments.put(loaded);
+            }
+            log.info("Refreshed segment {} ({} members)", segmentKey, loaded != null ? loaded.size() : 0);
+            return loaded;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onSegmentChanged(SegmentChangedEvent event) {
+        CompiledSegment segment = reloadSegment(event.getSegmentKey());
+        changeNotifier.notifySegmentChange(event.getSegmentKey(),
+                segment != null ? segment.getVersion() : FlagChangeNotifier.NO_VERSION);
+    }
+
+    @TransactionalEventListener
+    public void onFlagChanged(FlagChangedEvent event) {
+        if (event.getFlagKey() == null) {
+            reloadAll();
+            changeNotifier.notifyChange(event, FlagChangeNotifier.NO_VERSION);
+            return;
+        }
+        CompiledFlag flag = reload(event.getFlagKey()).get(event.getFlagKey());
+        changeNotifier.notifyChange(event, flag != null ? flag.getVersion() : FlagChangeNotifier.NO_VERSION);
+    }
+}
@@ -0,0 +1,255 @@
+package com.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagChangeMessage;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes flag definitions to SDK-style clients over Server-Sent Events. Emitters
+ * are async servlet responses, so an idle subscriber holds no request thread.
+ * <p>
+ * Each change is read and serialized once, then queued per subscriber. Every
+ * subscriber is drained by its own task on the application task executor, so a
+ * slow client only delays itself; one that falls {@code max-queued-events}
+ * behind is disconnected and resyncs from a new snapshot when it reconnects.
+ * Changes may be delivered out of order, so each carries the flag's version.
+ * <p>
+ * A new subscriber is registered before its snapshot is read, so no change can
+ * fall between the two. Changes broadcast while the snapshot is still being
+ * built are held back and sent right after it; sending them first would let the
+ * older snapshot overwrite them on the client.
+ */
+@Service
+@Slf4j
+public class FlagStreamService {
+
+    private final FeatureFlagService featureFlagService;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor executor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Value("${feature-flags.stream.timeout-ms:0}")
+    private long timeoutMs;
+
+    @Value("${feature-flags.stream.max-queued-events:1000}")
+    private int maxQueuedEvents = 1000;
+
+    public FlagStreamService(FeatureFlagService featureFlagService, ObjectMapper objectMapper,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                             TaskExecutor executor) {
+        this.featureFlagService = featureFlagService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        subscribers.add(subscriber);
+        try {
+            subscriber.start(SseEmitter.event().name("snapshot").data(featureFlagService.getAllFlags()).build());
+        } catch (IOException | RuntimeException e) {
+            subscriber.close(e);
+        }
+        return emitter;
+    }
+
+    @Async
+    // Fallback covers changes replayed from other nodes, which arrive outside a transaction
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFlagChanged(FlagChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (event.getFlagKey() == null) {
+            // Bulk change: resend everything rather than one event per flag
+            broadcast(SseEmitter.event().name("snapshot").data(json(featureFlagService.getAllFlags()),
+                    MediaType.APPLICATION_JSON).build());
+            return;
+        }
+
+        FeatureFlagDto flag = null;
+        if (event.getType() != FlagChangeType.DELETED) {
+            try {
+                flag = featureFlagService.getFlag(event.getFlagKey());
+            } catch (RuntimeException e) {
+                log.warn("Flag {} changed but could not be loaded for streaming", event.getFlagKey());
+            }
+        }
+
+        FlagChangeMessage message = new FlagChangeMessage(event.getType(), event.getFlagKey(),
+                flag != null ? flag.getVersion() : null, flag);
+        broadcast(SseEmitter.event().name("flag-change").data(json(message), MediaType.APPLICATION_JSON).build());
+    }
+
+    @Scheduled(fixedRateString = "${feature-flags.stream.heartbeat-ms:30000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            broadcast(SseEmitter.event().comment("heartbeat").build());
+        }
+    }
+
+    // Built once and shared: the emitter only reads the items
+    private void broadcast(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    private String json(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not serialize stream event: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * An emitter with its own event queue. Events are held until the snapshot has
+     * been sent, then drained in order by one task at a time. The lock only guards
+     * the queue, and is a ReentrantLock rather than synchronized, which would pin
+     * the carrier of a virtual thread.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayDeque<>();
+        private boolean started;
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // No drain runs before started is set, so the snapshot goes out first
+        void start(Set<ResponseBodyEmitter.DataWithMediaType> snapshot) throws IOException {
+            emitter.send(snapshot);
+            lock.lock();
+            try {
+                started = true;
+            } finally {
+                lock.unlock();
+            }
+            scheduleDrain();
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            boolean overflow;
+            boolean idle = false;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() < maxQueuedEvents) {
+                    queue.add(event);
+                    overflow = false;
+                } else {
+                    queue.clear();
+                    overflow = true;
+                    closed = true;
+                    idle = !draining;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!overflow) {
+                scheduleDrain();
+                return;
+            }
+            subscribers.remove(this);
+            log.warn("Stream subscriber fell {} events behind; disconnecting it", maxQueuedEvents);
+            // A running drain completes the emitter itself, so this thread never waits on a slow send
+            if (idle) {
+                emitter.complete();
+            }
+        }
+
+        private void scheduleDrain() {
+            lock.lock();
+            try {
+                if (!started || draining || closed || queue.isEmpty()) {
+                    return;
+                }
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                close(e);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                boolean stop;
+                lock.lock();
+                try {
+                    stop = closed;
+                    event = stop ? null : queue.poll();
+                    if (event == null) {
+                        draining = false;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (event == null) {
+                    if (stop) {
+                        emitter.complete();
+                    }
+                    return;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | RuntimeException e) {
+                    close(e);
+                    return;
+                }
+            }
+        }
+
+        // Only called when no drain is sending, from the drain itself or before one was started
+        void close(Throwable error) {
+            subscribers.remove(this);
+            lock.lock();
+            try {
+                queue.clear();
+                closed = true;
+            } finally {
+                lock.unlock();
+            }
+            emitter.completeWithError(error);
+        }
+    }
+}
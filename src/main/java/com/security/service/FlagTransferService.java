@@ -0,0 +1,473 @@
+package com.security.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagImportResultDto;
+import com.security.dto.PrerequisiteDto;
+import com.security.dto.RuleDto;
+import com.security.dto.VariationDto;
+import com.security.entity.FeatureFlag;
+import com.security.evaluation.CompiledRule;
+import com.security.evaluation.Rollout;
+import com.security.evaluation.RuleOperator;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.SegmentRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Moves whole flag configurations between environments as one JSON array of
+ * {@link FeatureFlagDto}s.
+ * <p>
+ * Export pages through flags by id and writes each page to the response as it
+ * goes. Import reads the array one flag at a time and applies it in chunks:
+ * every chunk is diffed against the stored flags, and only new or changed
+ * flags are written with JDBC batches (new flags inserted and changed ones
+ * updated by key, then variations, rules and prerequisites replaced wholesale).
+ * The diff already tells which flags exist, so no upsert is needed, and a flag
+ * created or deleted by someone else meanwhile fails the import instead of being
+ * silently overwritten. The SQL is portable, so the write path also runs on H2
+ * in tests. The whole import runs in one transaction. Once every flag has been read, the prerequisite graph the import
+ * would leave behind is checked as a whole, since a prerequisite may point at a
+ * flag later in the document or a stored flag may depend on an imported one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlagTransferService {
+
+    // Matches @BatchSize on the flag collections, so each page loads them in one statement each
+    private static final int EXPORT_PAGE_SIZE = 256;
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    private static final String INSERT_FLAG_SQL = "INSERT INTO feature_flags "
+            + "(key, name, description, enabled, default_variation, rollout_weights, bucket_by, version, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?)";
+    private static final String UPDATE_FLAG_SQL = "UPDATE feature_flags SET name = ?, description = ?, enabled = ?, "
+            + "default_variation = ?, rollout_weights = ?, bucket_by = ?, version = version + 1, updated_at = ? "
+            + "WHERE key = ?";
+    private static final String INSERT_VARIATION_SQL = "INSERT INTO variations "
+            + "(feature_flag_id, name, value, variation_index) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_RULE_SQL = "INSERT INTO rules "
+            + "(feature_flag_id, attribute, operator, value, variation_index, rule_order, rollout_weights, bucket_by, version, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?)";
+    private static final String INSERT_PREREQUISITE_SQL = "INSERT INTO flag_prerequisites "
+            + "(feature_flag_id, prerequisite_key, variation_index) VALUES (?, ?, ?)";
+
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagService featureFlagService;
+    private final SegmentRepository segmentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlagHistoryRecorder historyRecorder;
+
+    // Repeatable read keeps all pages on the same database snapshot
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportFlags(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(FeatureFlagDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            long lastId = 0L;
+            List<FeatureFlag> page;
+            do {
+                page = featureFlagRepository.findPageAfter(lastId, PageRequest.ofSize(EXPORT_PAGE_SIZE));
+                for (FeatureFlag flag : page) {
+                    writer.writeValue(generator, featureFlagService.convertToDto(flag));
+                    lastId = flag.getId();
+                }
+                generator.flush();
+                entityManager.clear();
+            } while (page.size() == EXPORT_PAGE_SIZE);
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Creates or updates every flag in the document. With {@code dryRun} nothing is
+     * written and the result only describes what would change. Any invalid flag
+     * rolls back the whole import.
+     */
+    @Transactional
+    public FlagImportResultDto importFlags(InputStream in, boolean dryRun) throws IOException {
+        FlagImportResultDto result = new FlagImportResultDto(dryRun);
+        ObjectReader reader = objectMapper.readerFor(FeatureFlagDto.class);
+        Set<String> knownSegments = new HashSet<>();
+        // Variation count and prerequisites of every imported flag, for the graph check at the end
+        Map<String, Integer> importedVariations = new HashMap<>();
+        Map<String, List<PrerequisiteDto>> importedPrerequisites = new HashMap<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new RuntimeException("Import must be a JSON array of flags");
+            }
+            List<FeatureFlagDto> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                FeatureFlagDto flag = reader.readValue(parser);
+                validate(flag, knownSegments);
+                if (importedVariations.put(flag.getKey(), orEmpty(flag.getVariations()).size()) != null) {
+                    throw new RuntimeException("Duplicate flag key in import: " + flag.getKey());
+                }
+                importedPrerequisites.put(flag.getKey(), orEmpty(flag.getPrerequisites()));
+                chunk.add(flag);
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, dryRun, result);
+                    chunk.clear();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new RuntimeException("Import must be a JSON array of flags");
+            }
+            importChunk(chunk, dryRun, result);
+        }
+        validatePrerequisites(importedVariations, importedPrerequisites);
+
+        log.info("{} flags: {} created, {} updated, {} unchanged", dryRun ? "Dry-run import of" : "Imported",
+                result.getCreated().size(), result.getUpdated().size(), result.getUnchanged());
+        if (!dryRun && (!result.getCreated().isEmpty() || !result.getUpdated().isEmpty())) {
+            eventPublisher.publishEvent(new FlagChangedEvent(null, FlagChangeType.IMPORTED));
+        }
+        return result;
+    }
+
+    private void importChunk(List<FeatureFlagDto> chunk, boolean dryRun, FlagImportResultDto result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, FlagContent> stored = new HashMap<>();
+        for (FeatureFlag flag : featureFlagRepository.findByKeyIn(chunk.stream().map(FeatureFlagDto::getKey).toList())) {
+            stored.put(flag.getKey(), FlagContent.of(featureFlagService.convertToDto(flag)));
+        }
+        // The JDBC writes below bypass the persistence context
+        entityManager.clear();
+
+        List<FeatureFlagDto> created = new ArrayList<>();
+        List<FeatureFlagDto> updated = new ArrayList<>();
+        for (FeatureFlagDto flag : chunk) {
+            FlagContent current = stored.get(flag.getKey());
+            if (current == null) {
+                result.getCreated().add(flag.getKey());
+                created.add(flag);
+                continue;
+            }
+            List<String> differences = current.diff(FlagContent.of(flag));
+            if (differences.isEmpty()) {
+                result.setUnchanged(result.getUnchanged() + 1);
+            } else {
+                result.getUpdated().put(flag.getKey(), differences);
+                updated.add(flag);
+            }
+        }
+
+        if (!dryRun && (!created.isEmpty() || !updated.isEmpty())) {
+            write(created, updated);
+            List<String> keys = new ArrayList<>(created.size() + updated.size());
+            created.forEach(flag -> keys.add(flag.getKey()));
+            updated.forEach(flag -> keys.add(flag.getKey()));
+            historyRecorder.record(keys, FlagChangeType.IMPORTED);
+        }
+    }
+
+    private void write(List<FeatureFlagDto> created, List<FeatureFlagDto> updated) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (!created.isEmpty()) {
+            // A key created meanwhile fails the unique constraint and rolls the import back
+            jdbcTemplate.batchUpdate(INSERT_FLAG_SQL, created, created.size(), (ps, flag) -> {
+                ps.setString(1, flag.getKey());
+                ps.setString(2, flag.getName());
+                ps.setString(3, flag.getDescription());
+                ps.setBoolean(4, flag.isEnabled());
+                ps.setInt(5, defaultIndex(flag));
+                ps.setString(6, blankToNull(flag.getRolloutWeights()));
+                ps.setString(7, blankToNull(flag.getBucketBy()));
+                ps.setTimestamp(8, now);
+                ps.setTimestamp(9, now);
+            });
+        }
+        if (!updated.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_FLAG_SQL, updated, updated.size(), (ps, flag) -> {
+                ps.setString(1, flag.getName());
+                ps.setString(2, flag.getDescription());
+                ps.setBoolean(3, flag.isEnabled());
+                ps.setInt(4, defaultIndex(flag));
+                ps.setString(5, blankToNull(flag.getRolloutWeights()));
+                ps.setString(6, blankToNull(flag.getBucketBy()));
+                ps.setTimestamp(7, now);
+                ps.setString(8, flag.getKey());
+            });
+            // One batch of updated.size(); a driver that reports no counts returns SUCCESS_NO_INFO
+            for (int i = 0; i < updated.size(); i++) {
+                if (counts[0][i] == 0) {
+                    throw new RuntimeException("Flag " + updated.get(i).getKey() + " was deleted during the import");
+                }
+            }
+        }
+
+        List<FeatureFlagDto> flags = new ArrayList<>(created);
+        flags.addAll(updated);
+
+        Map<String, Long> ids = new HashMap<>();
+        Object[] keys = flags.stream().map(FeatureFlagDto::getKey).toArray();
+        jdbcTemplate.query("SELECT id, key FROM feature_flags WHERE key = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", keys)),
+                rs -> {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                });
+        Long[] flagIds = ids.values().toArray(Long[]::new);
+        jdbcTemplate.update("DELETE FROM rules WHERE feature_flag_id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", flagIds)));
+        jdbcTemplate.update("DELETE FROM variations WHERE feature_flag_id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", flagIds)));
+        jdbcTemplate.update("DELETE FROM flag_prerequisites WHERE feature_flag_id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", flagIds)));
+
+        List<Object[]> variations = new ArrayList<>();
+        List<Object[]> rules = new ArrayList<>();
+        List<Object[]> prerequisites = new ArrayList<>();
+        for (FeatureFlagDto flag : flags) {
+            Long flagId = ids.get(flag.getKey());
+            List<VariationDto> flagVariations = orEmpty(flag.getVariations());
+            for (int i = 0; i < flagVariations.size(); i++) {
+                VariationDto variation = flagVariations.get(i);
+                variations.add(new Object[]{flagId, variation.getName(), variation.getValue(), i});
+            }
+            List<RuleDto> flagRules = orEmpty(flag.getRules());
+            for (int i = 0; i < flagRules.size(); i++) {
+                RuleDto rule = flagRules.get(i);
+                rules.add(new Object[]{flagId, rule.getAttribute(), rule.getOperator(), rule.getValue(),
+                        rule.getVariationIndex(), i, blankToNull(rule.getRolloutWeights()),
+                        blankToNull(rule.getBucketBy()), now});
+            }
+            for (PrerequisiteDto prerequisite : orEmpty(flag.getPrerequisites())) {
+                prerequisites.add(new Object[]{flagId, prerequisite.getFlagKey(), prerequisite.getVariationIndex()});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_VARIATION_SQL, variations);
+        jdbcTemplate.batchUpdate(INSERT_RULE_SQL, rules);
+        jdbcTemplate.batchUpdate(INSERT_PREREQUISITE_SQL, prerequisites);
+    }
+
+    /**
+     * Checks the prerequisite graph as it will be after the import: stored flags
+     * with the imported ones replacing theirs. Every prerequisite must name an
+     * existing flag and one of its variations, and there must be no cycle, as
+     * {@link FeatureFlagService#addPrerequisite} requires. This also catches a
+     * stored flag whose prerequisite loses its variation to the import.
+     */
+    private void validatePrerequisites(Map<String, Integer> importedVariations,
+                                       Map<String, List<PrerequisiteDto>> importedPrerequisites) {
+        Map<String, Integer> variationCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT f.key, COUNT(v.id) FROM feature_flags f "
+                        + "LEFT JOIN variations v ON v.feature_flag_id = f.id GROUP BY f.key",
+                rs -> {
+                    variationCounts.put(rs.getString(1), rs.getInt(2));
+                });
+        variationCounts.putAll(importedVariations);
+
+        Map<String, List<PrerequisiteDto>> edges = new HashMap<>();
+        jdbcTemplate.query("SELECT f.key, p.prerequisite_key, p.variation_index FROM flag_prerequisites p "
+                        + "JOIN feature_flags f ON f.id = p.feature_flag_id",
+                rs -> {
+                    edges.computeIfAbsent(rs.getString(1), k -> new ArrayList<>())
+                            .add(new PrerequisiteDto(rs.getString(2), rs.getInt(3)));
+                });
+        edges.putAll(importedPrerequisites);
+
+        Map<String, Integer> unmetPrerequisites = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        edges.forEach((flagKey, prerequisites) -> {
+            for (PrerequisiteDto prerequisite : prerequisites) {
+                Integer count = variationCounts.get(prerequisite.getFlagKey());
+                if (count == null) {
+                    throw new RuntimeException("Flag " + flagKey + ": prerequisite flag not found: "
+                            + prerequisite.getFlagKey());
+                }
+                if (prerequisite.getVariationIndex() >= count) {
+                    throw new RuntimeException("Flag " + flagKey + ": invalid variation index for "
+                            + prerequisite.getFlagKey() + ": " + prerequisite.getVariationIndex());
+                }
+                dependents.computeIfAbsent(prerequisite.getFlagKey(), k -> new ArrayList<>()).add(flagKey);
+            }
+            unmetPrerequisites.put(flagKey, prerequisites.size());
+        });
+
+        // Kahn's algorithm: whatever cannot be ordered is on or behind a cycle
+        Deque<String> ready = new ArrayDeque<>();
+        dependents.keySet().forEach(key -> unmetPrerequisites.putIfAbsent(key, 0));
+        unmetPrerequisites.forEach((key, unmet) -> {
+            if (unmet == 0) {
+                ready.add(key);
+            }
+        });
+        while (!ready.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(ready.poll(), List.of())) {
+                if (unmetPrerequisites.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        List<String> cyclic = unmetPrerequisites.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+        if (!cyclic.isEmpty()) {
+            throw new RuntimeException("Import would create a prerequisite cycle among: " + String.join(", ", cyclic));
+        }
+    }
+
+    private void validate(FeatureFlagDto flag, Set<String> knownSegments) {
+        if (flag.getKey() == null || flag.getKey().isBlank()) {
+            throw new RuntimeException("Imported flag without a key");
+        }
+        if (flag.getName() == null || flag.getName().isBlank()) {
+            throw new RuntimeException("Flag " + flag.getKey() + ": name is required");
+        }
+        int variationCount = orEmpty(flag.getVariations()).size();
+        try {
+            for (VariationDto variation : orEmpty(flag.getVariations())) {
+                if (variation.getName() == null || variation.getValue() == null) {
+                    throw new RuntimeException("Variations need a name and a value");
+                }
+            }
+            if (flag.getDefaultVariation() != null && indexOfVariation(flag, flag.getDefaultVariation()) < 0) {
+                throw new RuntimeException("Unknown default variation: " + flag.getDefaultVariation());
+            }
+            Rollout.validate(flag.getRolloutWeights(), variationCount);
+            for (RuleDto rule : orEmpty(flag.getRules())) {
+                if (rule.getAttribute() == null || rule.getValue() == null) {
+                    throw new RuntimeException("Rules need an attribute and a value");
+                }
+                if (rule.getVariationIndex() < 0 || rule.getVariationIndex() >= variationCount) {
+                    throw new RuntimeException("Invalid variation index: " + rule.getVariationIndex());
+                }
+                CompiledRule.validate(rule.getOperator(), rule.getValue());
+                if (RuleOperator.fromString(rule.getOperator()) == RuleOperator.IN_SEGMENT
+                        && !knownSegments.contains(rule.getValue())) {
+                    if (!segmentRepository.existsByKey(rule.getValue())) {
+                        throw new RuntimeException("Segment not found: " + rule.getValue());
+                    }
+                    knownSegments.add(rule.getValue());
+                }
+                Rollout.validate(rule.getRolloutWeights(), variationCount);
+            }
+            Set<String> prerequisiteKeys = new HashSet<>();
+            for (PrerequisiteDto prerequisite : orEmpty(flag.getPrerequisites())) {
+                if (prerequisite.getFlagKey() == null || prerequisite.getFlagKey().isBlank()) {
+                    throw new RuntimeException("Prerequisites need a flag key");
+                }
+                if (prerequisite.getFlagKey().equals(flag.getKey())) {
+                    throw new RuntimeException("A flag cannot be its own prerequisite");
+                }
+                if (!prerequisiteKeys.add(prerequisite.getFlagKey())) {
+                    throw new RuntimeException("Duplicate prerequisite: " + prerequisite.getFlagKey());
+                }
+                if (prerequisite.getVariationIndex() < 0) {
+                    throw new RuntimeException("Invalid variation index for " + prerequisite.getFlagKey()
+                            + ": " + prerequisite.getVariationIndex());
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Flag " + flag.getKey() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static int defaultIndex(FeatureFlagDto flag) {
+        return Math.max(0, indexOfVariation(flag, flag.getDefaultVariation()));
+    }
+
+    private static int indexOfVariation(FeatureFlagDto flag, String name) {
+        List<VariationDto> variations = orEmpty(flag.getVariations());
+        for (int i = 0; i < variations.size(); i++) {
+            if (variations.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * The parts of a flag an import can change, normalised so an exported flag
+     * compares equal to what is stored.
+     */
+    private record FlagContent(String name, String description, boolean enabled, int defaultIndex,
+                               String rolloutWeights, String bucketBy,
+                               List<VariationDto> variations, List<RuleContent> rules,
+                               List<PrerequisiteDto> prerequisites) {
+
+        static FlagContent of(FeatureFlagDto flag) {
+            return new FlagContent(flag.getName(), blankToNull(flag.getDescription()), flag.isEnabled(),
+                    FlagTransferService.defaultIndex(flag), blankToNull(flag.getRolloutWeights()), blankToNull(flag.getBucketBy()),
+                    orEmpty(flag.getVariations()),
+                    orEmpty(flag.getRules()).stream().map(RuleContent::of).toList(),
+                    // Evaluation does not depend on their order, so neither does the comparison
+                    orEmpty(flag.getPrerequisites()).stream()
+                            .sorted(Comparator.comparing(PrerequisiteDto::getFlagKey))
+                            .toList());
+        }
+
+        List<String> diff(FlagContent other) {
+            List<String> fields = new ArrayList<>();
+            if (!Objects.equals(name, other.name)) fields.add("name");
+            if (!Objects.equals(description, other.description)) fields.add("description");
+            if (enabled != other.enabled) fields.add("enabled");
+            if (defaultIndex != other.defaultIndex) fields.add("defaultVariation");
+            if (!Objects.equals(rolloutWeights, other.rolloutWeights)
+                    || !Objects.equals(bucketBy, other.bucketBy)) fields.add("rollout");
+            if (!variations.equals(other.variations)) fields.add("variations");
+            if (!rules.equals(other.rules)) fields.add("rules");
+            if (!prerequisites.equals(other.prerequisites)) fields.add("prerequisites");
+            return fields;
+        }
+    }
+
+    private record RuleContent(String attribute, String operator, String value, int variationIndex,
+                               String rolloutWeights, String bucketBy) {
+
+        static RuleContent of(RuleDto rule) {
+            return new RuleContent(rule.getAttribute(), rule.getOperator(), rule.getValue(),
+                    rule.getVariationIndex(), blankToNull(rule.getRolloutWeights()), blankToNull(rule.getBucketBy()));
+        }
+    }
+}
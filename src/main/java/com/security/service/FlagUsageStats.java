@@ -0,0 +1,187 @@
+package com.security.service;
+
+import com.security.config.UsageStatsProperties;
+import com.security.dto.FlagUsageDto;
+import com.security.evaluation.EvaluationResult;
+import com.security.entity.FlagUsageSummary;
+import com.security.repository.FlagEvaluationStatRepository;
+import com.security.repository.FlagUsageSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on evaluation counts per flag, variation and matched rule, flushed into
+ * {@code flag_evaluation_stats} once a minute. The same flush moves each flag's
+ * {@code flag_usage_summary} row forward, so "last evaluated" is a key lookup.
+ * <p>
+ * Counters are keyed by the precomputed {@link EvaluationResult} of each outcome
+ * (identity, not equality), so counting an evaluation is a map lookup plus a
+ * {@link LongAdder} increment with no allocation.
+ */
+@Component
+@Slf4j
+public class FlagUsageStats implements EvaluationListener {
+
+    private static final String INSERT_SQL = "INSERT INTO flag_evaluation_stats "
+            + "(flag_key, bucket_start, variation_index, rule_id, reason, eval_count) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Nodes flush the same minute concurrently; GREATEST keeps the newest bucket whichever commits last
+    private static final String UPSERT_SUMMARY_SQL = "INSERT INTO flag_usage_summary (flag_key, last_bucket) "
+            + "VALUES (?, ?) ON CONFLICT (flag_key) DO UPDATE "
+            + "SET last_bucket = GREATEST(flag_usage_summary.last_bucket, EXCLUDED.last_bucket)";
+
+    private final UsageStatsProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final FlagEvaluationStatRepository statRepository;
+    private final FlagUsageSummaryRepository summaryRepository;
+    private final Map<EvaluationResult, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private volatile Map<String, FlagUsageDto> usage = Map.of();
+
+    public FlagUsageStats(UsageStatsProperties properties, JdbcTemplate jdbcTemplate,
+                          FlagEvaluationStatRepository statRepository,
+                          FlagUsageSummaryRepository summaryRepository) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.statRepository = statRepository;
+        this.summaryRepository = summaryRepository;
+    }
+
+    @Override
+    public void onEvaluation(EvaluationResult result, Map<String, String> context) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LongAdder counter = counters.get(result);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(result, r -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Scheduled(cron = "0 * * * * *")
+    public void flush() {
+        LocalDateTime bucketStart = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES).minusMinutes(1);
+        Map<EvaluationResult, Long> taken = new HashMap<>();
+        Map<StatKey, Long> totals = new HashMap<>();
+        for (Map.Entry<EvaluationResult, LongAdder> entry : counters.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count == 0) {
+                // Outcome of an old snapshot or an idle flag; an increment racing with
+                // this removal is lost, which is acceptable for usage statistics
+                counters.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            taken.put(entry.getKey(), count);
+            totals.merge(StatKey.of(entry.getKey()), count, Long::sum);
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<StatKey, Long>> rows = new ArrayList<>(totals.entrySet());
+        Timestamp bucket = Timestamp.valueOf(bucketStart);
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                StatKey key = row.getKey();
+                ps.setString(1, key.flagKey());
+                ps.setTimestamp(2, bucket);
+                if (key.variationIndex() != null) {
+                    ps.setInt(3, key.variationIndex());
+                } else {
+                    ps.setNull(3, Types.INTEGER);
+                }
+                if (key.ruleId() != null) {
+                    ps.setLong(4, key.ruleId());
+                } else {
+                    ps.setNull(4, Types.BIGINT);
+                }
+                ps.setString(5, key.reason());
+                ps.setLong(6, row.getValue());
+            });
+        } catch (RuntimeException e) {
+            // Put the counts back so the next flush writes them, one minute late
+            taken.forEach((result, count) -> counters.computeIfAbsent(result, r -> new LongAdder()).add(count));
+            log.error("Failed to flush {} flag usage rows for {}; retrying next minute", rows.size(), bucketStart, e);
+            return;
+        }
+        try {
+            // Sorted so concurrent flushes from several nodes lock summary rows in the same order
+            List<String> flagKeys = totals.keySet().stream().map(StatKey::flagKey).distinct().sorted().toList();
+            jdbcTemplate.batchUpdate(UPSERT_SUMMARY_SQL, flagKeys, flagKeys.size(), (ps, flagKey) -> {
+                ps.setString(1, flagKey);
+                ps.setTimestamp(2, bucket);
+            });
+        } catch (RuntimeException e) {
+            // The counts are stored; a flag's summary moves forward again with its next flushed minute
+            log.error("Failed to update flag usage summaries for {}", bucketStart, e);
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getRetention());
+        int deleted = statRepository.deleteOlderThan(cutoff);
+        int idle = summaryRepository.deleteOlderThan(cutoff);
+        log.info("Purged {} flag usage rows and {} idle flag summaries", deleted, idle);
+    }
+
+    /**
+     * Cluster-wide "last evaluated" and "evals/min" per flag, as of the last refresh.
+     */
+    public Map<String, FlagUsageDto> getUsage() {
+        return usage;
+    }
+
+    /**
+     * Rebuilds the usage map off the request thread. Rows only change when a minute
+     * is flushed, so refreshing once a minute is enough; it also runs at startup.
+     */
+    @Scheduled(fixedDelayString = "${feature-flags.usage-stats.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LocalDateTime minute = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        int window = properties.getRateWindowMinutes();
+        try {
+            Map<String, Long> recent = new HashMap<>();
+            for (FlagEvaluationStatRepository.RecentCount row : statRepository.countSince(minute.minusMinutes(window))) {
+                recent.put(row.getFlagKey(), row.getEvalCount());
+            }
+            Map<String, FlagUsageDto> byFlag = new HashMap<>();
+            for (FlagUsageSummary summary : summaryRepository.findByLastBucketGreaterThanEqual(
+                    minute.minus(properties.getLookback()))) {
+                long count = recent.getOrDefault(summary.getFlagKey(), 0L);
+                byFlag.put(summary.getFlagKey(), new FlagUsageDto(summary.getFlagKey(),
+                        summary.getLastBucket().plusMinutes(1), count / (double) window));
+            }
+            usage = byFlag;
+        } catch (RuntimeException e) {
+            // Keep serving the previous map; the next refresh tries again
+            log.warn("Failed to refresh flag usage", e);
+        }
+    }
+
+    private record StatKey(String flagKey, Integer variationIndex, Long ruleId, String reason) {
+        static StatKey of(EvaluationResult result) {
+            return new StatKey(result.getFlagKey(),
+                    result.getVariation() != null ? result.getVariation().getIndex() : null,
+                    result.getMatchedRule() != null ? result.getMatchedRule().getId() : null,
+                    result.getReason());
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.security.service;
+
+import com.security.config.ImpressionProperties;
+import com.security.evaluation.EvaluationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records which variation each user was served. Evaluations enqueue a small
+ * event into a bounded queue; a scheduled writer drains it, drops tuples already
+ * written within the de-duplication window and inserts the rest with JDBC batches.
+ */
+@Component
+@Slf4j
+public class ImpressionRecorder implements EvaluationListener {
+
+    private static final String INSERT_SQL = "INSERT INTO flag_impressions "
+            + "(flag_key, user_key, variation_index, variation, reason, rule_id, evaluated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final ImpressionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<Impression> queue;
+    private final Map<ImpressionKey, Long> lastWritten;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Counter enqueued;
+    private final Counter dropped;
+    private final Counter deduplicated;
+    private final Counter written;
+    private final Counter failed;
+
+    public ImpressionRecorder(ImpressionProperties properties, JdbcTemplate jdbcTemplate, MeterRegistry registry) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueSize());
+        int maxEntries = properties.getDedupMaxEntries();
+        this.lastWritten = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ImpressionKey, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.enqueued = counter(registry, "enqueued", "Impressions accepted into the queue");
+        this.dropped = counter(registry, "dropped", "Impressions dropped because the queue was full");
+        this.deduplicated = counter(registry, "deduplicated", "Impressions skipped as duplicates within the window");
+        this.written = counter(registry, "written", "Impressions inserted into flag_impressions");
+        this.failed = counter(registry, "failed", "Impressions lost because a batch insert failed");
+        Gauge.builder("feature_flags.impressions.queued", queue, BlockingQueue::size)
+                .description("Impressions waiting to be written")
+                .register(registry);
+    }
+
+    @Override
+    public void onEvaluation(EvaluationResult result, Map<String, String> context) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String userKey = context.get(properties.getUserAttribute());
+        if (userKey == null) {
+            return;
+        }
+        if (queue.offer(new Impression(result, userKey, System.currentTimeMillis()))) {
+            enqueued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${feature-flags.impressions.flush-interval-ms:1000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Impression> drained = new ArrayList<>(properties.getBatchSize());
+            while (queue.drainTo(drained, properties.getBatchSize()) > 0) {
+                writeBatch(deduplicate(drained));
+                drained.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private List<Impression> deduplicate(List<Impression> impressions) {
+        long windowMillis = properties.getDedupWindow().toMillis();
+        List<Impression> unique = new ArrayList<>(impressions.size());
+        for (Impression impression : impressions) {
+            ImpressionKey key = impression.key();
+            Long previous = lastWritten.get(key);
+            if (previous != null && impression.timestamp() - previous < windowMillis) {
+                deduplicated.increment();
+                continue;
+            }
+            lastWritten.put(key, impression.timestamp());
+            unique.add(impression);
+        }
+        return unique;
+    }
+
+    private void writeBatch(List<Impression> impressions) {
+        if (impressions.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, impressions, impressions.size(), (ps, impression) -> {
+                EvaluationResult result = impression.result();
+                ps.setString(1, result.getFlagKey());
+                ps.setString(2, impression.userKey());
+                if (result.getVariation() != null) {
+                    ps.setInt(3, result.getVariation().getIndex());
+                    ps.setString(4, result.getVariation().getName());
+                } else {
+                    ps.setNull(3, Types.INTEGER);
+                    ps.setNull(4, Types.VARCHAR);
+                }
+                ps.setString(5, result.getReason());
+                if (result.getMatchedRule() != null && result.getMatchedRule().getId() != null) {
+                    ps.setLong(6, result.getMatchedRule().getId());
+                } else {
+                    ps.setNull(6, Types.BIGINT);
+                }
+                ps.setTimestamp(7, new Timestamp(impression.timestamp()));
+            });
+            written.increment(impressions.size());
+        } catch (RuntimeException e) {
+            failed.increment(impressions.size());
+            // Forget the tuples so they are written again on their next evaluation
+            impressions.forEach(impression -> lastWritten.remove(impression.key()));
+            log.error("Failed to write {} flag impressions", impressions.size(), e);
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String outcome, String description) {
+        return Counter.builder("feature_flags.impressions")
+                .description(description)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private record Impression(EvaluationResult result, String userKey, long timestamp) {
+        ImpressionKey key() {
+            int variationIndex = result.getVariation() != null ? result.getVariation().getIndex() : -1;
+            return new ImpressionKey(result.getFlagKey(), variationIndex, userKey);
+        }
+    }
+
+    private record ImpressionKey(String flagKey, int variationIndex, String userKey) {
+    }
+}
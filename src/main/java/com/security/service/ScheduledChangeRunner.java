@@ -0,0 +1,100 @@
+package com.security.service;
+
+import com.security.config.ScheduledChangeProperties;
+import com.security.entity.ScheduledFlagChange;
+import com.security.repository.ScheduledFlagChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Applies due scheduled flag changes on one node of the cluster at a time.
+ * <p>
+ * Every node polls, but each change is applied in its own transaction that first
+ * takes a transaction-scoped Postgres advisory lock. Whichever node gets the lock
+ * applies the change; the others stop for this round. The lock is released with
+ * the commit, so a crashed leader never blocks the others. The change and its
+ * single flag change event commit together, so the snapshot is refreshed once.
+ */
+@Component
+@Slf4j
+public class ScheduledChangeRunner {
+
+    // Arbitrary, but must be the same on every node
+    private static final long LOCK_KEY = 0x5343484544464cL;
+
+    private final ScheduledChangeProperties properties;
+    private final ScheduledFlagChangeRepository scheduledChangeRepository;
+    private final ScheduledChangeService scheduledChangeService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+
+    public ScheduledChangeRunner(ScheduledChangeProperties properties,
+                                 ScheduledFlagChangeRepository scheduledChangeRepository,
+                                 ScheduledChangeService scheduledChangeService, JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.scheduledChangeRepository = scheduledChangeRepository;
+        this.scheduledChangeService = scheduledChangeService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Applies the changes due now and returns how many were applied. A change that
+     * hits a transient conflict, such as a concurrent admin edit of the same flag,
+     * stays pending and is retried on the next poll.
+     */
+    @Scheduled(fixedDelayString = "${feature-flags.scheduled-changes.poll-interval-ms:5000}")
+    public int applyDueChanges() {
+        if (!properties.isEnabled()) {
+            return 0;
+        }
+        List<Long> due = scheduledChangeRepository.findDueIds(ScheduledFlagChange.Status.PENDING,
+                Instant.now(), PageRequest.ofSize(properties.getBatchSize()));
+        int applied = 0;
+        for (Long id : due) {
+            Outcome outcome;
+            try {
+                outcome = transaction.execute(status -> {
+                    if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                            "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                        return Outcome.LOCKED_ELSEWHERE;
+                    }
+                    return scheduledChangeService.apply(id) ? Outcome.APPLIED : Outcome.SKIPPED;
+                });
+            } catch (TransientDataAccessException e) {
+                log.warn("Scheduled change {} conflicted with another update, retrying on the next poll: {}",
+                        id, e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                log.error("Scheduled change {} failed", id, e);
+                transaction.executeWithoutResult(status -> scheduledChangeService.markFailed(id, e.getMessage()));
+                continue;
+            }
+            switch (outcome) {
+                case APPLIED -> applied++;
+                case SKIPPED -> log.debug("Scheduled change {} is no longer pending", id);
+                case LOCKED_ELSEWHERE -> {
+                    log.debug("Another node is applying scheduled changes");
+                    return applied;
+                }
+            }
+        }
+        return applied;
+    }
+
+    private enum Outcome {
+        APPLIED,
+        SKIPPED,
+        LOCKED_ELSEWHERE
+    }
+}
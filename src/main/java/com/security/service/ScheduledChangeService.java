@@ -0,0 +1,151 @@
+package com.security.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.dto.CreateRuleDto;
+import com.security.dto.ScheduleFlagChangeDto;
+import com.security.dto.ScheduledFlagChangeDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.ScheduledFlagChange;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.ScheduledFlagChangeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Stores flag changes planned for a later time and applies them one at a time
+ * for {@link ScheduledChangeRunner}. A change is applied through
+ * {@link FeatureFlagService}, so it publishes exactly one flag change event.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduledChangeService {
+
+    private final ScheduledFlagChangeRepository scheduledChangeRepository;
+    private final FeatureFlagRepository featureFlagRepository;
+    private final FeatureFlagService featureFlagService;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public ScheduledFlagChangeDto schedule(String flagKey, ScheduleFlagChangeDto dto) {
+        log.info("Scheduling {} for flag {} at {}", dto.getAction(), flagKey, dto.getDueAt());
+
+        FeatureFlag flag = featureFlagRepository.findByKey(flagKey)
+                .orElseThrow(() -> new RuntimeException("Feature flag not found: " + flagKey));
+        if (dto.getDueAt() == null) {
+            throw new RuntimeException("dueAt is required");
+        }
+        ScheduledFlagChange.Action action = parseAction(dto.getAction());
+
+        ScheduledFlagChange change = new ScheduledFlagChange();
+        change.setFlagKey(flagKey);
+        change.setAction(action);
+        change.setDueAt(dto.getDueAt().toInstant());
+        // Validated now so mistakes surface when scheduling, not at launch time
+        switch (action) {
+            case ADD_RULE -> {
+                if (dto.getRule() == null) {
+                    throw new RuntimeException("rule is required for ADD_RULE");
+                }
+                dto.getRule().setFlagKey(flagKey);
+                featureFlagService.validateRule(flag, dto.getRule());
+                change.setPayload(writeRule(dto.getRule()));
+            }
+            case SET_DEFAULT_VARIATION -> {
+                if (dto.getVariationIndex() == null
+                        || flag.getVariations().stream().noneMatch(v -> v.getIndex() == dto.getVariationIndex())) {
+                    throw new RuntimeException("Invalid variation index: " + dto.getVariationIndex());
+                }
+                change.setVariationIndex(dto.getVariationIndex());
+            }
+            default -> {
+            }
+        }
+        return toDto(scheduledChangeRepository.save(change));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ScheduledFlagChangeDto> getScheduledChanges(String flagKey) {
+        return scheduledChangeRepository.findByFlagKeyOrderByDueAtDesc(flagKey).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Transactional
+    public void cancel(String flagKey, Long id) {
+        ScheduledFlagChange change = scheduledChangeRepository.findById(id)
+                .filter(c -> c.getFlagKey().equals(flagKey))
+                .orElseThrow(() -> new RuntimeException("Scheduled change not found: " + id));
+        if (change.getStatus() != ScheduledFlagChange.Status.PENDING) {
+            throw new RuntimeException("Scheduled change " + id + " is already " + change.getStatus());
+        }
+        change.setStatus(ScheduledFlagChange.Status.CANCELLED);
+    }
+
+    /**
+     * Applies one due change in the caller's transaction. Returns {@code false} if
+     * the change is no longer pending (cancelled or applied meanwhile).
+     */
+    boolean apply(Long id) {
+        ScheduledFlagChange change = scheduledChangeRepository.findById(id).orElse(null);
+        if (change == null || change.getStatus() != ScheduledFlagChange.Status.PENDING) {
+            return false;
+        }
+        switch (change.getAction()) {
+            case ENABLE -> featureFlagService.toggleFlag(change.getFlagKey(), true, null);
+            case DISABLE -> featureFlagService.toggleFlag(change.getFlagKey(), false, null);
+            case ADD_RULE -> featureFlagService.createRule(readRule(change.getPayload()));
+            case SET_DEFAULT_VARIATION ->
+                    featureFlagService.setDefaultVariation(change.getFlagKey(), change.getVariationIndex());
+        }
+        change.setStatus(ScheduledFlagChange.Status.APPLIED);
+        change.setAppliedAt(Instant.now());
+        log.info("Applied scheduled {} to flag {} (due {})", change.getAction(), change.getFlagKey(), change.getDueAt());
+        return true;
+    }
+
+    void markFailed(Long id, String error) {
+        scheduledChangeRepository.findById(id).ifPresent(change -> {
+            change.setStatus(ScheduledFlagChange.Status.FAILED);
+            change.setError(error);
+        });
+    }
+
+    private ScheduledFlagChange.Action parseAction(String action) {
+        try {
+            return ScheduledFlagChange.Action.valueOf(action.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new RuntimeException("Unsupported action: " + action);
+        }
+    }
+
+    private String writeRule(CreateRuleDto rule) {
+        try {
+            return objectMapper.writeValueAsString(rule);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not store rule: " + e.getOriginalMessage());
+        }
+    }
+
+    private CreateRuleDto readRule(String payload) {
+        try {
+            return objectMapper.readValue(payload, CreateRuleDto.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored rule is unreadable: " + e.getOriginalMessage());
+        }
+    }
+
+    private ScheduledFlagChangeDto toDto(ScheduledFlagChange change) {
+        return new ScheduledFlagChangeDto(change.getId(), change.getFlagKey(), change.getAction().name(),
+                change.getDueAt(), change.getStatus().name(), change.getVariationIndex(),
+                change.getPayload() != null ? readRule(change.getPayload()) : null,
+                change.getError(), change.getAppliedAt());
+    }
+}
@@ -0,0 +1,217 @@
+package com.security.service;
+
+import com.security.dto.CreateSegmentDto;
+import com.security.dto.SegmentDto;
+import com.security.dto.SegmentValuesDto;
+import com.security.entity.Segment;
+import com.security.evaluation.BucketHasher;
+import com.security.evaluation.CompiledSegment;
+import com.security.event.SegmentChangedEvent;
+import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains segments and their values. Values are written with JDBC batches and
+ * never through the rules that reference the segment; each change bumps the
+ * segment version and publishes a {@link SegmentChangedEvent}, after which
+ * {@link FlagSnapshotService} swaps in the new membership.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SegmentService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_VALUE_SQL = "INSERT INTO segment_values (segment_id, value) VALUES (?, ?) "
+            + "ON CONFLICT (segment_id, value) DO NOTHING";
+
+    private final SegmentRepository segmentRepository;
+    private final RuleRepository ruleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public List<SegmentDto> getSegments() {
+        Map<Long, Long> sizes = new HashMap<>();
+        jdbcTemplate.query("SELECT segment_id, count(*) FROM segment_values GROUP BY segment_id",
+                rs -> {
+                    sizes.put(rs.getLong(1), rs.getLong(2));
+                });
+        return segmentRepository.findAllByOrderByKey().stream()
+                .map(segment -> toDto(segment, sizes.getOrDefault(segment.getId(), 0L)))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public SegmentDto getSegment(String key) {
+        Segment segment = findSegment(key);
+        return toDto(segment, countValues(segment.getId()));
+    }
+
+    @Transactional
+    public SegmentDto createSegment(CreateSegmentDto dto) {
+        log.info("Creating segment: {}", dto.getKey());
+        if (dto.getKey() == null || dto.getKey().isBlank()) {
+            throw new RuntimeException("Segment key is required");
+        }
+        if (segmentRepository.existsByKey(dto.getKey())) {
+            throw new RuntimeException("Segment with key '" + dto.getKey() + "' already exists");
+        }
+
+        Segment segment = new Segment();
+        segment.setKey(dto.getKey());
+        segment.setName(dto.getName() != null && !dto.getName().isBlank() ? dto.getName() : dto.getKey());
+        segment.setDescription(dto.getDescription());
+        segment = segmentRepository.saveAndFlush(segment);
+
+        if (dto.getValues() != null) {
+            insertValues(segment.getId(), dto.getValues());
+        }
+        eventPublisher.publishEvent(new SegmentChangedEvent(segment.getKey()));
+        return toDto(segment, countValues(segment.getId()));
+    }
+
+    /**
+     * Replaces all values of a segment with the lines of {@code in} (one value per
+     * line, blank lines ignored). The upload is streamed in batches, so large lists
+     * are never held in memory as a whole.
+     */
+    @Transactional
+    public SegmentDto replaceValues(String key, InputStream in) throws IOException {
+        Segment segment = segmentRepository.findByKeyForUpdate(key)
+                .orElseThrow(() -> new RuntimeException("Segment not found: " + key));
+        jdbcTemplate.update("DELETE FROM segment_values WHERE segment_id = ?", segment.getId());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String value = line.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            batch.add(value);
+            if (batch.size() == BATCH_SIZE) {
+                insertValues(segment.getId(), batch);
+                batch.clear();
+            }
+        }
+        insertValues(segment.getId(), batch);
+
+        eventPublisher.publishEvent(new SegmentChangedEvent(key));
+        long size = countValues(segment.getId());
+        log.info("Replaced values of segment {} ({} values)", key, size);
+        return toDto(segment, size);
+    }
+
+    @Transactional
+    public SegmentDto updateValues(String key, SegmentValuesDto dto) {
+        Segment segment = segmentRepository.findByKeyForUpdate(key)
+                .orElseThrow(() -> new RuntimeException("Segment not found: " + key));
+        if (dto.getAdd() != null) {
+            insertValues(segment.getId(), dto.getAdd());
+        }
+        if (dto.getRemove() != null && !dto.getRemove().isEmpty()) {
+            Object[] removed = dto.getRemove().stream().map(String::trim).toArray();
+            jdbcTemplate.update("DELETE FROM segment_values WHERE segment_id = ? AND value = ANY (?)",
+                    ps -> {
+                        ps.setLong(1, segment.getId());
+                        ps.setArray(2, ps.getConnection().createArrayOf("text", removed));
+                    });
+        }
+        eventPublisher.publishEvent(new SegmentChangedEvent(key));
+        return toDto(segment, countValues(segment.getId()));
+    }
+
+    @Transactional
+    public void deleteSegment(String key) {
+        Segment segment = findSegment(key);
+        List<String> flags = ruleRepository.findFlagKeysUsingSegment(key);
+        if (!flags.isEmpty()) {
+            throw new RuntimeException("Segment is used by rules of flags: " + String.join(", ", flags));
+        }
+        jdbcTemplate.update("DELETE FROM segment_values WHERE segment_id = ?", segment.getId());
+        segmentRepository.delete(segment);
+        eventPublisher.publishEvent(new SegmentChangedEvent(key));
+    }
+
+    /**
+     * Loads the membership of one segment, or {@code null} if it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public CompiledSegment loadSegment(String key) {
+        return segmentRepository.findByKey(key).map(this::compile).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public List<CompiledSegment> loadAllSegments() {
+        return segmentRepository.findAll().stream().map(this::compile).toList();
+    }
+
+    // Values are hashed as they are read, so only the primitive array is kept
+    private CompiledSegment compile(Segment segment) {
+        long[][] hashes = {new long[1024]};
+        int[] count = {0};
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT value FROM segment_values WHERE segment_id = ?");
+            ps.setFetchSize(BATCH_SIZE);
+            ps.setLong(1, segment.getId());
+            return ps;
+        }, rs -> {
+            if (count[0] == hashes[0].length) {
+                hashes[0] = Arrays.copyOf(hashes[0], count[0] * 2);
+            }
+            hashes[0][count[0]++] = BucketHasher.hash(rs.getString(1));
+        });
+        return CompiledSegment.of(segment.getKey(), segment.getId(), segment.getVersion(), hashes[0], count[0]);
+    }
+
+    private void insertValues(long segmentId, Collection<String> values) {
+        List<String> trimmed = values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .map(String::trim)
+                .toList();
+        for (int from = 0; from < trimmed.size(); from += BATCH_SIZE) {
+            List<String> batch = trimmed.subList(from, Math.min(trimmed.size(), from + BATCH_SIZE));
+            jdbcTemplate.batchUpdate(INSERT_VALUE_SQL, batch, batch.size(), (ps, value) -> {
+                ps.setLong(1, segmentId);
+                ps.setString(2, value);
+            });
+        }
+    }
+
+    private long countValues(long segmentId) {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM segment_values WHERE segment_id = ?",
+                Long.class, segmentId);
+        return count != null ? count : 0L;
+    }
+
+    private Segment findSegment(String key) {
+        return segmentRepository.findByKey(key)
+                .orElseThrow(() -> new RuntimeException("Segment not found: " + key));
+    }
+
+    private SegmentDto toDto(Segment segment, long size) {
+        return new SegmentDto(segment.getKey(), segment.getName(), segment.getDescription(),
+                segment.getVersion(), size);
+    }
+}
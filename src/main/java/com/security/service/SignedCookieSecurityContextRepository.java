@@ -0,0 +1,225 @@
+package com.security.service;
+
+import com.security.config.SessionProperties;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the authenticated principal in a signed cookie instead of the
+ * HttpSession, so any node can restore it without shared session storage.
+ * <p>
+ * The token is {@code base64url(expiry:authorities:username).base64url(hmac)},
+ * signed with HMAC-SHA256. Successfully verified tokens are cached until they
+ * expire, so a request with a known token costs one map lookup.
+ * <p>
+ * Nothing is stored server-side, so signing out only clears the cookie in the
+ * browser and this node's cache entry: a copied token stays valid on every
+ * node until it expires. Keep {@code security.session.token-ttl} short, or
+ * rotate the secret to invalidate all tokens at once.
+ */
+@Slf4j
+public class SignedCookieSecurityContextRepository implements SecurityContextRepository {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final SessionProperties properties;
+    private final SecretKeySpec key;
+    // Pooled rather than per thread: with virtual threads every request is a new thread
+    private final Queue<Mac> macs = new ConcurrentLinkedQueue<>();
+    private final Map<String, Verified> verified = new ConcurrentHashMap<>();
+    private final SecurityContextHolderStrategy holderStrategy = SecurityContextHolder.getContextHolderStrategy();
+
+    public SignedCookieSecurityContextRepository(SessionProperties properties) {
+        this.properties = properties;
+        byte[] secret;
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            log.warn("security.session.secret is not set; using a random key, so sign-ins are only valid on this node until restart");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else {
+            secret = Base64.getDecoder().decode(properties.getSecret());
+            if (secret.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("security.session.secret must decode to at least "
+                        + MIN_SECRET_BYTES + " bytes, got " + secret.length);
+            }
+        }
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        macs.add(newMac());
+    }
+
+    // The default loadDeferredContext defers this until the context is first read
+    @Override
+    @SuppressWarnings("deprecation")
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        return load(requestResponseHolder.getRequest());
+    }
+
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            String existing = readCookie(request);
+            if (existing != null) {
+                // Only this node forgets the token; see the class comment on revocation
+                verified.remove(existing);
+                writeCookie(response, "", 0);
+            }
+            return;
+        }
+
+        // Contexts are saved explicitly after a sign-in, so each call issues a fresh token
+        long expiresAt = Instant.now().plus(properties.getTokenTtl()).getEpochSecond();
+        String authorities = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        String payload = ENCODER.encodeToString(
+                (expiresAt + ":" + authorities + ":" + authentication.getName()).getBytes(StandardCharsets.UTF_8));
+        writeCookie(response, payload + "." + ENCODER.encodeToString(sign(payload)), properties.getTokenTtl().toSeconds());
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return verify(readCookie(request)) != null;
+    }
+
+    private SecurityContext load(HttpServletRequest request) {
+        SecurityContext context = holderStrategy.createEmptyContext();
+        Authentication authentication = verify(readCookie(request));
+        if (authentication != null) {
+            context.setAuthentication(authentication);
+        }
+        return context;
+    }
+
+    private Authentication verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = Instant.now().getEpochSecond();
+        Verified cached = verified.get(token);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.authentication();
+            }
+            verified.remove(token);
+            return null;
+        }
+
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] parts = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(":", 3);
+            long expiresAt = Long.parseLong(parts[0]);
+            if (expiresAt <= now) {
+                return null;
+            }
+            List<GrantedAuthority> authorities = parts[1].isEmpty()
+                    ? List.of()
+                    : AuthorityUtils.commaSeparatedStringToAuthorityList(parts[1]);
+            User principal = new User(parts[2], "", authorities);
+            Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+            if (verified.size() >= properties.getVerificationCacheSize()) {
+                verified.values().removeIf(entry -> entry.expiresAt() <= now);
+                if (verified.size() >= properties.getVerificationCacheSize()) {
+                    verified.clear();
+                }
+            }
+            verified.put(token, new Verified(authentication, expiresAt));
+            return authentication;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            // Malformed base64 or payload: treat like a missing cookie
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = newMac();
+        }
+        try {
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            macs.offer(mac);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    int cachedTokens() {
+        return verified.size();
+    }
+
+    private String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookie.getName().equals(properties.getCookieName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void writeCookie(HttpServletResponse response, String value, long maxAgeSeconds) {
+        ResponseCookie cookie = ResponseCookie.from(properties.getCookieName(), value)
+                .httpOnly(true)
+                .secure(properties.isSecureCookie())
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAgeSeconds)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private record Verified(Authentication authentication, long expiresAt) {
+    }
+}
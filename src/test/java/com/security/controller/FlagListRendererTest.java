@@ -0,0 +1,104 @@
+package com.security.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagUsageDto;
+import com.security.dto.RuleDto;
+import com.security.dto.VariationDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.HtmlUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlagListRendererTest {
+
+    private static final String HOSTILE_KEY = "x\");alert(1);//'><script>alert(2)</script>";
+    private static final String HOSTILE_NAME = "on\"},{\"name\":\"</x>'\\";
+    private static final Pattern HANDLER = Pattern.compile(" on(?:click|change)='([^']*)'");
+    private static final Pattern ATTRIBUTE = Pattern.compile(" (data-[a-z-]+)='([^']*)'");
+
+    @Test
+    void hostileKeysStayOutOfInlineHandlers() {
+        String html = FlagListRenderer.renderToString(hostileFlag(), null, false);
+
+        assertThat(html).doesNotContain("<script>");
+        assertThat(matches(HANDLER, html, 1)).containsOnly(
+                "toggleFlag(this.dataset.flagKey, this.checked, Number(this.dataset.version))",
+                "deleteFlag(this.dataset.flagKey)",
+                "openRuleModal(this.dataset.flagKey, JSON.parse(this.dataset.variations))",
+                "deleteRule(this.dataset.flagKey, this.dataset.ruleId)");
+    }
+
+    @Test
+    void dataAttributesDecodeToTheOriginalValues() throws Exception {
+        String html = FlagListRenderer.renderToString(hostileFlag(), null, false);
+
+        List<String> names = matches(ATTRIBUTE, html, 1);
+        List<String> values = matches(ATTRIBUTE, html, 2).stream().map(HtmlUtils::htmlUnescape).toList();
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i)) {
+                case "data-flag-key" -> assertThat(values.get(i)).isEqualTo(HOSTILE_KEY);
+                case "data-rule-id" -> assertThat(values.get(i)).isEqualTo("7");
+                case "data-version" -> assertThat(values.get(i)).isEqualTo("3");
+                case "data-variations" -> {
+                    JsonNode variations = new ObjectMapper().readTree(values.get(i));
+                    assertThat(variations).hasSize(2);
+                    assertThat(variations.get(0).get("name").asText()).isEqualTo(HOSTILE_NAME);
+                    assertThat(variations.get(1).get("value").asText()).isEqualTo("line\nbreak");
+                }
+                default -> throw new AssertionError("Unexpected attribute " + names.get(i));
+            }
+        }
+        assertThat(Set.copyOf(names)).containsExactlyInAnyOrder(
+                "data-flag-key", "data-rule-id", "data-version", "data-variations");
+    }
+
+    @Test
+    void usageRateIgnoresTheDefaultLocale() {
+        Locale original = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            FlagUsageDto usage = new FlagUsageDto("checkout", LocalDateTime.of(2026, 1, 2, 3, 4), 12.345);
+
+            String html = FlagListRenderer.renderToString(hostileFlag(), usage, false);
+
+            assertThat(html).contains("Last evaluated 2026-01-02 03:04 &middot; 12.3 evals/min");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    private static FeatureFlagDto hostileFlag() {
+        FeatureFlagDto flag = new FeatureFlagDto();
+        flag.setKey(HOSTILE_KEY);
+        flag.setName(HOSTILE_KEY);
+        flag.setVersion(3);
+        flag.setVariations(List.of(new VariationDto(HOSTILE_NAME, "off"), new VariationDto("on", "line\nbreak")));
+        RuleDto rule = new RuleDto();
+        rule.setId("7");
+        rule.setAttribute("email");
+        rule.setOperator("equals");
+        rule.setValue(HOSTILE_KEY);
+        rule.setVariationIndex(1);
+        flag.setRules(List.of(rule));
+        return flag;
+    }
+
+    private static List<String> matches(Pattern pattern, String html, int group) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = pattern.matcher(html);
+        while (matcher.find()) {
+            found.add(matcher.group(group));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,163 @@
+package com.security.evaluation;
+
+import com.security.entity.Rule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pins the precompiled operators to the string-dispatched evaluation they
+ * replaced, kept below as {@link #evaluateCondition}.
+ */
+class CompiledRuleTest {
+
+    private static final List<String> USER_VALUES = List.of(
+            "alice@example.com", "bob@example.org", "ALICE@EXAMPLE.COM", "", " ", "de", "us", "u", "a,b");
+
+    @Test
+    void equalsIsExactAndCaseSensitive() {
+        assertMatches("equals", "alice@example.com", "alice@example.com");
+        assertNoMatch("equals", "alice@example.com", "ALICE@EXAMPLE.COM", " alice@example.com", "");
+        assertSameAsBefore("equals", "alice@example.com");
+    }
+
+    @Test
+    void containsStartsWithAndEndsWith() {
+        assertMatches("contains", "@example", "alice@example.com", "bob@example.org");
+        assertNoMatch("contains", "@example", "ALICE@EXAMPLE.COM");
+        assertMatches("startswith", "alice", "alice@example.com");
+        assertNoMatch("startswith", "alice", "ALICE@EXAMPLE.COM", "");
+        assertMatches("endswith", ".com", "alice@example.com");
+        assertNoMatch("endswith", ".com", "bob@example.org");
+        for (String operator : List.of("contains", "startswith", "endswith")) {
+            assertSameAsBefore(operator, "@example");
+            assertSameAsBefore(operator, "alice");
+            assertSameAsBefore(operator, ".com");
+        }
+    }
+
+    @Test
+    void matchesUsesTheWholeValue() {
+        assertMatches("matches", ".*@example\\.com", "alice@example.com");
+        assertNoMatch("matches", "alice", "alice@example.com");
+        assertSameAsBefore("matches", ".*@example\\.com");
+        assertSameAsBefore("matches", "[a-z]{2}");
+    }
+
+    @Test
+    void inTrimsEachListEntry() {
+        assertMatches("in", "us, de ,fr", "us", "de");
+        assertNoMatch("in", "us, de ,fr", " de", "u", "a,b");
+        assertSameAsBefore("in", "us, de ,fr");
+        assertSameAsBefore("in", "a,b");
+    }
+
+    @Test
+    void operatorNamesIgnoreCase() {
+        assertMatches("StartsWith", "alice", "alice@example.com");
+        assertMatches("EQUALS", "us", "us");
+        assertSameAsBefore("StartsWith", "alice");
+        assertSameAsBefore("IN", "us,de");
+    }
+
+    @Test
+    void blankValuesBehaveAsBefore() {
+        // Still accepted: only a missing value is rejected
+        assertThatCode(() -> CompiledRule.validate("contains", "")).doesNotThrowAnyException();
+        assertMatches("contains", "", "alice@example.com", "");
+        assertMatches("startswith", "", "alice@example.com");
+        assertMatches("equals", "", "");
+        assertNoMatch("equals", "", " ");
+        assertMatches("in", " , ", "");
+        for (String operator : List.of("equals", "contains", "startswith", "endswith", "matches", "in")) {
+            assertSameAsBefore(operator, "");
+            assertSameAsBefore(operator, " ");
+        }
+    }
+
+    @Test
+    void invalidRegexIsRejectedOnCreateAndNeverMatches() {
+        assertThatThrownBy(() -> CompiledRule.validate("matches", "(["))
+                .hasMessageStartingWith("Invalid regular expression");
+        // The old evaluation threw on every request instead
+        assertThatThrownBy(() -> evaluateCondition("matches", "([", "alice"))
+                .isInstanceOf(PatternSyntaxException.class);
+
+        CompiledRule rule = compile("matches", "([");
+        assertThat(rule.getOperator()).isNull();
+        for (String userValue : USER_VALUES) {
+            assertThat(rule.matches(userValue)).isFalse();
+        }
+    }
+
+    @Test
+    void unknownOperatorsAndMissingValuesAreRejectedOnCreate() {
+        assertThatThrownBy(() -> CompiledRule.validate("like", "a")).hasMessage("Unsupported operator: like");
+        assertThatThrownBy(() -> CompiledRule.validate("equals", null)).hasMessage("Rule value is required");
+
+        CompiledRule rule = compile("like", "a");
+        assertThat(rule.matches("a")).isFalse().isEqualTo(evaluateCondition("like", "a", "a"));
+    }
+
+    private static void assertMatches(String operator, String ruleValue, String... userValues) {
+        CompiledRule rule = compile(operator, ruleValue);
+        for (String userValue : userValues) {
+            assertThat(rule.matches(userValue)).as("%s %s '%s'", operator, ruleValue, userValue).isTrue();
+        }
+    }
+
+    private static void assertNoMatch(String operator, String ruleValue, String... userValues) {
+        CompiledRule rule = compile(operator, ruleValue);
+        for (String userValue : userValues) {
+            assertThat(rule.matches(userValue)).as("%s %s '%s'", operator, ruleValue, userValue).isFalse();
+        }
+    }
+
+    private static void assertSameAsBefore(String operator, String ruleValue) {
+        CompiledRule rule = compile(operator, ruleValue);
+        for (String userValue : USER_VALUES) {
+            assertThat(rule.matches(userValue)).as("%s %s '%s'", operator, ruleValue, userValue)
+                    .isEqualTo(evaluateCondition(operator, ruleValue, userValue));
+        }
+    }
+
+    private static CompiledRule compile(String operator, String value) {
+        Rule rule = new Rule();
+        rule.setId(1L);
+        rule.setAttribute("email");
+        rule.setOperator(operator);
+        rule.setValue(value);
+        CompiledVariation variation = new CompiledVariation(0, "on", "true");
+        return new CompiledRule("flag", rule, 0, variation, new CompiledVariation[]{variation}, new SegmentRegistry());
+    }
+
+    // FeatureFlagService.evaluateCondition before rules were precompiled
+    private static boolean evaluateCondition(String operator, String ruleValue, String userValue) {
+        switch (operator.toLowerCase()) {
+            case "equals":
+                return userValue.equals(ruleValue);
+            case "contains":
+                return userValue.contains(ruleValue);
+            case "startswith":
+                return userValue.startsWith(ruleValue);
+            case "endswith":
+                return userValue.endsWith(ruleValue);
+            case "matches":
+                return userValue.matches(ruleValue);
+            case "in":
+                for (String val : ruleValue.split(",")) {
+                    if (userValue.equals(val.trim())) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+}
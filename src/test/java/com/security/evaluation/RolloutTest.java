@@ -0,0 +1,88 @@
+package com.security.evaluation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RolloutTest {
+
+    private static final CompiledVariation[] VARIATIONS = {
+            new CompiledVariation(0, "off", "false"),
+            new CompiledVariation(1, "on", "true"),
+            new CompiledVariation(2, "beta", "beta")
+    };
+
+    /**
+     * Known assignments. If these change, every user of every rollout moves to a
+     * different bucket, so a hash change must be deliberate.
+     */
+    @Test
+    void bucketsAreStable() {
+        long checkout = BucketHasher.seed("new-checkout.");
+        assertThat(BucketHasher.bucket(checkout, "user-1")).isEqualTo(19087);
+        assertThat(BucketHasher.bucket(checkout, "user-2")).isEqualTo(37840);
+        assertThat(BucketHasher.bucket(checkout, "alice@example.com")).isEqualTo(79218);
+        assertThat(BucketHasher.bucket(checkout, "")).isEqualTo(13842);
+
+        long pricing = BucketHasher.seed("pricing.");
+        assertThat(BucketHasher.bucket(pricing, "user-1")).isEqualTo(93656);
+        assertThat(BucketHasher.bucket(pricing, "alice@example.com")).isEqualTo(95458);
+
+        assertThat(BucketHasher.hash("alice@example.com")).isEqualTo(6045154221903643736L);
+        assertThat(BucketHasher.hash("")).isEqualTo(-1166397803181037274L);
+    }
+
+    @Test
+    void selectsVariationByBucket() {
+        Rollout rollout = compile("new-checkout", "20,80", null);
+
+        // user-1 is in bucket 19087 and user-2 in 37840 (see bucketsAreStable)
+        assertThat(rollout.select(Map.of("userId", "user-1")).getVariation().getIndex()).isZero();
+        assertThat(rollout.select(Map.of("userId", "user-2")).getVariation().getIndex()).isEqualTo(1);
+        assertThat(rollout.select("userId", "user-2")).isSameAs(rollout.select(Map.of("userId", "user-2")));
+    }
+
+    @Test
+    void missingBucketByAttributeMeansBucketZero() {
+        Rollout rollout = compile("new-checkout", "30,70", "accountId");
+
+        assertThat(rollout.getBucketBy()).isEqualTo("accountId");
+        assertThat(rollout.select(Map.of("userId", "user-2")).getVariation().getIndex()).isZero();
+        assertThat(rollout.select("userId", "user-2").getVariation().getIndex()).isZero();
+        // Bucket 0 falls into the first variation with a non-zero weight
+        assertThat(compile("new-checkout", "0,100", null).select(Map.of()).getVariation().getIndex()).isEqualTo(1);
+    }
+
+    @Test
+    void weightsMustTotalExactly100000Thousandths() {
+        assertThatCode(() -> Rollout.validate("95,5", 2)).doesNotThrowAnyException();
+        assertThatCode(() -> Rollout.validate("99.999, 0.001", 2)).doesNotThrowAnyException();
+        assertThatCode(() -> Rollout.validate("33.333,33.333,33.334", 3)).doesNotThrowAnyException();
+        assertThatCode(() -> Rollout.validate(" ", 2)).doesNotThrowAnyException();
+
+        assertThatThrownBy(() -> Rollout.validate("50,49.999", 2))
+                .hasMessage("Rollout weights must add up to 100, got 99.999");
+        assertThatThrownBy(() -> Rollout.validate("50,50.001", 2))
+                .hasMessage("Rollout weights must add up to 100, got 100.001");
+        assertThatThrownBy(() -> Rollout.validate("50,25,25", 2))
+                .hasMessage("Rollout has 3 weights but the flag has 2 variations");
+        assertThatThrownBy(() -> Rollout.validate("-10,110", 2))
+                .hasMessage("Rollout weights must be between 0 and 100: -10");
+        assertThatThrownBy(() -> Rollout.validate("half,50", 2)).hasMessage("Invalid rollout weight: half");
+    }
+
+    @Test
+    void noWeightsMeansNoRollout() {
+        assertThat(compile("new-checkout", null, null)).isNull();
+        assertThat(compile("new-checkout", "", null)).isNull();
+    }
+
+    private static Rollout compile(String flagKey, String weights, String bucketBy) {
+        return Rollout.compile(flagKey, weights, bucketBy, VARIATIONS,
+                v -> new EvaluationResult(flagKey, true, v, "rollout", null));
+    }
+}
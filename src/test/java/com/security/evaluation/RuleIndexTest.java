@@ -0,0 +1,139 @@
+package com.security.evaluation;
+
+import com.security.entity.FeatureFlag;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Flags with {@link RuleIndex#MIN_RULES} or more rules are evaluated through the
+ * index; these tests hold it to the result of a plain first-match scan.
+ */
+class RuleIndexTest {
+
+    private static final String[] ATTRIBUTES = {"email", "country", "plan"};
+    private static final String[] OPERATORS = {"equals", "in", "startswith", "contains", "endswith", "matches"};
+    private static final String[] VALUES = {"a", "ab", "abc", "abd", "b", "ba", "bab", "c", ""};
+
+    @Test
+    void firstMatchWinsAcrossIndexedAndScannedRules() {
+        FeatureFlag flag = flag();
+        addRule(flag, "email", "contains", "example", 1);
+        addRule(flag, "email", "equals", "alice@example.com", 2);
+        addRule(flag, "email", "startswith", "alice", 3);
+        padToIndexedSize(flag);
+        CompiledFlag compiled = CompiledFlag.from(flag, new SegmentRegistry());
+
+        EvaluationResult result = compiled.evaluate(Map.of("email", "alice@example.com"));
+
+        assertThat(result.getMatchedRule().getPosition()).isZero();
+        assertThat(result.getVariation().getIndex()).isEqualTo(1);
+        assertThat(compiled.evaluate("email", "alice@example.com").getMatchedRule().getPosition()).isZero();
+    }
+
+    @Test
+    void inListsAndSharedPrefixesFollowRuleOrder() {
+        FeatureFlag flag = flag();
+        addRule(flag, "country", "startswith", "abc", 1);
+        addRule(flag, "country", "in", "x, abcd ,y", 2);
+        addRule(flag, "country", "startswith", "ab", 3);
+        addRule(flag, "country", "startswith", "a", 0);
+        addRule(flag, "country", "in", "zz,a", 1);
+        padToIndexedSize(flag);
+        CompiledFlag compiled = CompiledFlag.from(flag, new SegmentRegistry());
+
+        assertThat(compiled.evaluate(Map.of("country", "abcd")).getMatchedRule().getPosition()).isZero();
+        assertThat(compiled.evaluate(Map.of("country", "abx")).getMatchedRule().getPosition()).isEqualTo(2);
+        assertThat(compiled.evaluate(Map.of("country", "a")).getMatchedRule().getPosition()).isEqualTo(3);
+        assertThat(compiled.evaluate(Map.of("country", "y")).getMatchedRule().getPosition()).isEqualTo(1);
+        assertThat(compiled.evaluate(Map.of("country", "zz")).getMatchedRule().getPosition()).isEqualTo(4);
+        assertThat(compiled.evaluate(Map.of("country", "q")).getReason()).isEqualTo("default_variation");
+    }
+
+    @Test
+    void indexedEvaluationMatchesLinearScanOnRandomRuleSets() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            FeatureFlag flag = flag();
+            int ruleCount = RuleIndex.MIN_RULES + random.nextInt(40);
+            for (int i = 0; i < ruleCount; i++) {
+                String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+                String value = switch (operator) {
+                    case "in" -> pick(random) + "," + pick(random) + ", " + pick(random);
+                    case "matches" -> pick(random) + ".*";
+                    default -> pick(random);
+                };
+                addRule(flag, ATTRIBUTES[random.nextInt(ATTRIBUTES.length)], operator, value, random.nextInt(3));
+            }
+            CompiledFlag compiled = CompiledFlag.from(flag, new SegmentRegistry());
+
+            for (int sample = 0; sample < 50; sample++) {
+                Map<String, String> context = new HashMap<>();
+                for (String attribute : ATTRIBUTES) {
+                    if (random.nextInt(4) > 0) {
+                        context.put(attribute, pick(random) + (random.nextBoolean() ? pick(random) : ""));
+                    }
+                }
+                assertThat(compiled.evaluate(context)).isSameAs(linear(compiled, context));
+
+                String attribute = ATTRIBUTES[random.nextInt(ATTRIBUTES.length)];
+                String value = pick(random) + pick(random);
+                EvaluationResult expected = linear(compiled, Map.of(attribute, value));
+                assertThat(compiled.evaluate(attribute, value)).isSameAs(expected);
+                assertThat(compiled.isEnabledFor(attribute, value)).isEqualTo(expected.getMatchedRule() != null);
+            }
+        }
+    }
+
+    // The scan CompiledFlag uses below MIN_RULES
+    private static EvaluationResult linear(CompiledFlag flag, Map<String, String> context) {
+        for (CompiledRule rule : flag.getRules()) {
+            String value = context.get(rule.getAttribute());
+            if (value != null && rule.matches(value)) {
+                return rule.select(context);
+            }
+        }
+        return flag.getDefaultResult();
+    }
+
+    private static String pick(Random random) {
+        return VALUES[random.nextInt(VALUES.length)];
+    }
+
+    private static void padToIndexedSize(FeatureFlag flag) {
+        while (flag.getRules().size() < RuleIndex.MIN_RULES) {
+            addRule(flag, "plan", "equals", "unused-" + flag.getRules().size(), 0);
+        }
+    }
+
+    private static FeatureFlag flag() {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey("indexed");
+        flag.setEnabled(true);
+        for (int v = 0; v < 4; v++) {
+            Variation variation = new Variation();
+            variation.setName("variation-" + v);
+            variation.setValue(String.valueOf(v));
+            variation.setIndex(v);
+            flag.getVariations().add(variation);
+        }
+        return flag;
+    }
+
+    private static void addRule(FeatureFlag flag, String attribute, String operator, String value, int variationIndex) {
+        Rule rule = new Rule();
+        rule.setId((long) flag.getRules().size() + 1);
+        rule.setAttribute(attribute);
+        rule.setOperator(operator);
+        rule.setValue(value);
+        rule.setVariationIndex(variationIndex);
+        rule.setOrder(flag.getRules().size());
+        flag.getRules().add(rule);
+    }
+}
@@ -0,0 +1,115 @@
+package com.security.repository;
+
+import com.security.entity.FeatureFlag;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:flags;NON_KEYWORDS=KEY,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FeatureFlagRepositoryTest {
+
+    private static final int FLAG_COUNT = 50;
+
+    @Autowired
+    private FeatureFlagRepository featureFlagRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < FLAG_COUNT; i++) {
+            FeatureFlag flag = new FeatureFlag();
+            flag.setKey("flag-" + i);
+            flag.setName("Flag " + i);
+            for (int v = 0; v < 2; v++) {
+                Variation variation = new Variation();
+                variation.setFeatureFlag(flag);
+                variation.setName("variation-" + v);
+                variation.setValue(String.valueOf(v));
+                variation.setIndex(v);
+                flag.getVariations().add(variation);
+            }
+            for (int r = 0; r < 3; r++) {
+                Rule rule = new Rule();
+                rule.setFeatureFlag(flag);
+                rule.setAttribute("email");
+                rule.setOperator("equals");
+                rule.setValue("user" + r + "@example.com");
+                rule.setOrder(r);
+                flag.getRules().add(rule);
+            }
+            entityManager.persist(flag);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllWithVariationsLoadsWholeGraphInBoundedStatements() {
+        List<FeatureFlag> flags = featureFlagRepository.findAllWithVariations();
+
+        int variations = 0;
+        int rules = 0;
+        for (FeatureFlag flag : flags) {
+            variations += flag.getVariations().size();
+            rules += flag.getRules().size();
+        }
+
+        assertThat(flags).hasSize(FLAG_COUNT);
+        assertThat(variations).isEqualTo(FLAG_COUNT * 2);
+        assertThat(rules).isEqualTo(FLAG_COUNT * 3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void findByKeyLoadsVariationsAndRulesInTwoStatements() {
+        FeatureFlag flag = featureFlagRepository.findByKey("flag-7").orElseThrow();
+
+        assertThat(flag.getVariations()).hasSize(2);
+        assertThat(flag.getRules()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void searchPageAfterPagesByKeyAndFiltersByPrefix() {
+        List<FeatureFlag> first = featureFlagRepository.searchPageAfter("", null, null, PageRequest.ofSize(20));
+        List<FeatureFlag> second = featureFlagRepository.searchPageAfter(
+                first.get(first.size() - 1).getKey(), null, null, PageRequest.ofSize(20));
+
+        assertThat(first).extracting(FeatureFlag::getKey).isSorted().hasSize(20);
+        assertThat(second).extracting(FeatureFlag::getKey).isSorted().hasSize(20)
+                .allMatch(key -> key.compareTo(first.get(19).getKey()) > 0);
+
+        assertThat(featureFlagRepository.searchPageAfter("", "flag-4%", null, PageRequest.ofSize(50)))
+                .hasSize(11);
+        assertThat(featureFlagRepository.searchPageAfter("", "flag 7%", false, PageRequest.ofSize(50)))
+                .extracting(FeatureFlag::getKey).containsExactly("flag-7");
+        assertThat(featureFlagRepository.searchPageAfter("", null, true, PageRequest.ofSize(50))).isEmpty();
+    }
+}
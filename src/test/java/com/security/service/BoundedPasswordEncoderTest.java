@@ -0,0 +1,117 @@
+package com.security.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final BlockingEncoder delegate = new BlockingEncoder();
+    private final BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 2, 1);
+
+    @AfterEach
+    void tearDown() {
+        delegate.release.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void hashingBeyondThePoolAndQueueIsRejectedAsBusy() throws Exception {
+        List<Future<Boolean>> calls = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 4; i++) {
+                calls.add(callers.submit(() -> encoder.matches("secret", "secret")));
+            }
+            // Two hash, one waits in the queue and the fourth is turned away at once
+            assertThat(delegate.started.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<Boolean> rejected = awaitFirstDone(calls);
+            assertThatThrownBy(rejected::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isInstanceOf(AuthenticationServiceException.class)
+                    .hasMessageContaining("Too many sign-in attempts");
+
+            delegate.release.countDown();
+            for (Future<Boolean> call : calls) {
+                if (call != rejected) {
+                    assertThat(call.get(10, TimeUnit.SECONDS)).isTrue();
+                }
+            }
+        }
+        assertThat(delegate.maxRunning.get()).isEqualTo(2);
+        assertThat(delegate.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void delegateFailureReachesTheCaller() {
+        BoundedPasswordEncoder failing = new BoundedPasswordEncoder(new BlockingEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                throw new IllegalArgumentException("rawPassword cannot be null");
+            }
+        }, 1, 1);
+        try {
+            assertThatThrownBy(() -> failing.encode(null))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("rawPassword cannot be null");
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    private static Future<Boolean> awaitFirstDone(List<Future<Boolean>> calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            for (Future<Boolean> call : calls) {
+                if (call.isDone()) {
+                    return call;
+                }
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("No call was rejected");
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            calls.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
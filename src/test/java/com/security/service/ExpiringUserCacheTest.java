@@ -0,0 +1,72 @@
+package com.security.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringUserCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void entryIsServedUntilItsTtlHasPassed() {
+        ExpiringUserCache cache = new ExpiringUserCache(TTL, 10, now::get);
+        cache.putUserInCache(user("alice"));
+
+        now.addAndGet(TTL.toNanos());
+        assertThat(cache.getUserFromCache("alice").getPassword()).isEqualTo("{noop}alice");
+
+        now.incrementAndGet();
+        assertThat(cache.getUserFromCache("alice")).isNull();
+    }
+
+    @Test
+    void cachedCopyKeepsItsCredentialsWhenTheOriginalIsErased() {
+        ExpiringUserCache cache = new ExpiringUserCache(TTL, 10, now::get);
+        User user = (User) user("alice");
+        cache.putUserInCache(user);
+
+        user.eraseCredentials();
+        ((User) cache.getUserFromCache("alice")).eraseCredentials();
+
+        assertThat(cache.getUserFromCache("alice").getPassword()).isEqualTo("{noop}alice");
+    }
+
+    @Test
+    void fullCacheMakesRoomByDroppingExpiredEntries() {
+        ExpiringUserCache cache = new ExpiringUserCache(TTL, 2, now::get);
+        cache.putUserInCache(user("alice"));
+        now.addAndGet(TTL.toNanos() / 2);
+        cache.putUserInCache(user("bob"));
+
+        cache.putUserInCache(user("carol"));
+        assertThat(cache.getUserFromCache("carol")).isNull();
+
+        now.addAndGet(TTL.toNanos() / 2 + 1);
+        cache.putUserInCache(user("carol"));
+        assertThat(cache.getUserFromCache("carol")).isNotNull();
+        assertThat(cache.getUserFromCache("bob")).isNotNull();
+        assertThat(cache.getUserFromCache("alice")).isNull();
+    }
+
+    @Test
+    void removedUserIsLoadedAgain() {
+        ExpiringUserCache cache = new ExpiringUserCache(TTL, 10, now::get);
+        cache.putUserInCache(user("alice"));
+
+        cache.removeUserFromCache("alice");
+
+        assertThat(cache.getUserFromCache("alice")).isNull();
+    }
+
+    private static UserDetails user(String username) {
+        return User.withUsername(username).password("{noop}" + username).roles("USER").build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.security.service;
+
+import com.security.dto.CreateRuleDto;
+import com.security.dto.FlagEvaluationResponse;
+import com.security.dto.PrerequisiteDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.FlagPrerequisite;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.FlagSnapshot;
+import com.security.evaluation.SegmentRegistry;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagPrerequisiteRepository;
+import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
+import com.security.repository.VariationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeatureFlagServiceTest {
+
+    private final FeatureFlagRepository featureFlagRepository = mock(FeatureFlagRepository.class);
+    private final RuleRepository ruleRepository = mock(RuleRepository.class);
+    private final FlagPrerequisiteRepository prerequisiteRepository = mock(FlagPrerequisiteRepository.class);
+    private final FlagSnapshotService snapshots = mock(FlagSnapshotService.class);
+    private final FeatureFlag flag = flag("checkout");
+    private final AtomicLong ids = new AtomicLong();
+
+    private FeatureFlagService service;
+
+    @BeforeEach
+    void setUp() {
+        when(featureFlagRepository.findByKeyForUpdate("checkout")).thenReturn(Optional.of(flag));
+        when(ruleRepository.save(any(Rule.class))).thenAnswer(invocation -> {
+            Rule rule = invocation.getArgument(0);
+            rule.setId(ids.incrementAndGet());
+            return rule;
+        });
+        when(ruleRepository.findById(anyLong())).thenAnswer(invocation -> flag.getRules().stream()
+                .filter(rule -> rule.getId().equals(invocation.getArgument(0)))
+                .findFirst());
+
+        service = new FeatureFlagService(featureFlagRepository, mock(VariationRepository.class), ruleRepository,
+                mock(SegmentRepository.class), prerequisiteRepository,
+                snapshots, mock(ApplicationEventPublisher.class),
+                mock(FlagEvaluationMetrics.class), List.of());
+    }
+
+    @Test
+    void ruleAddedAfterADeleteGetsAnUnusedOrder() {
+        for (int i = 0; i < 3; i++) {
+            service.createRule(rule("user" + i + "@example.com"));
+        }
+        service.deleteRule("checkout", flag.getRules().get(0).getId().toString());
+
+        service.createRule(rule("user3@example.com"));
+
+        assertThat(flag.getRules()).extracting(Rule::getOrder).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void nextRuleOrderStartsAtZeroAndSkipsGaps() {
+        assertThat(FeatureFlagService.nextRuleOrder(List.of())).isZero();
+
+        Rule first = new Rule();
+        first.setOrder(0);
+        Rule last = new Rule();
+        last.setOrder(5);
+        assertThat(FeatureFlagService.nextRuleOrder(List.of(last, first))).isEqualTo(6);
+    }
+
+    @Test
+    void unmetPrerequisiteServesTheDefaultVariation() {
+        FeatureFlag beta = flag("beta");
+        beta.getRules().add(emailRule("@example.com"));
+        requires(flag, "beta", 1);
+        snapshot(flag, beta);
+
+        FlagEvaluationResponse met = service.evaluateFlagWithContext("checkout", Map.of("email", "alice@example.com"));
+        assertThat(met.isEnabled()).isTrue();
+        assertThat(met.getReason()).isEqualTo("default_variation");
+
+        FlagEvaluationResponse unmet = service.evaluateFlagWithContext("checkout", Map.of("email", "bob@other.com"));
+        assertThat(unmet.isEnabled()).isFalse();
+        assertThat(unmet.getReason()).isEqualTo("prerequisite_failed");
+        assertThat(unmet.getVariation()).isEqualTo("variation-0");
+    }
+
+    @Test
+    void prerequisiteClosingACycleIsRejected() {
+        FeatureFlag beta = flag("beta");
+        when(featureFlagRepository.findByKey("beta")).thenReturn(Optional.of(beta));
+        when(prerequisiteRepository.findAllEdges()).thenReturn(List.of(edge("beta", "gamma"), edge("gamma", "checkout")));
+
+        assertThatThrownBy(() -> service.addPrerequisite("checkout", new PrerequisiteDto("beta", 1)))
+                .hasMessage("Prerequisite would create a cycle: checkout -> beta -> gamma -> checkout");
+        verify(prerequisiteRepository, never()).save(any());
+        assertThat(flag.getPrerequisites()).isEmpty();
+    }
+
+    @Test
+    void flagsOnACycleFailClosed() {
+        // Two concurrent edits can race past the cycle check
+        FeatureFlag beta = flag("beta");
+        FeatureFlag gamma = flag("gamma");
+        requires(flag, "beta", 1);
+        requires(beta, "checkout", 1);
+        requires(gamma, "checkout", 1);
+        snapshot(flag, beta, gamma);
+
+        for (String key : List.of("checkout", "beta", "gamma")) {
+            FlagEvaluationResponse response = service.evaluateFlagWithContext(key, Map.of("email", "alice@example.com"));
+            assertThat(response.isEnabled()).as(key).isFalse();
+            assertThat(response.getReason()).as(key).isEqualTo("prerequisite_failed");
+        }
+    }
+
+    private void snapshot(FeatureFlag... flags) {
+        Map<String, CompiledFlag> compiled = new HashMap<>();
+        for (FeatureFlag f : flags) {
+            compiled.put(f.getKey(), CompiledFlag.from(f, new SegmentRegistry()));
+        }
+        when(snapshots.current()).thenReturn(new FlagSnapshot(compiled, 1L));
+    }
+
+    private static FeatureFlag flag(String key) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey(key);
+        flag.setEnabled(true);
+        for (int v = 0; v < 2; v++) {
+            Variation variation = new Variation();
+            variation.setFeatureFlag(flag);
+            variation.setName("variation-" + v);
+            variation.setValue(String.valueOf(v));
+            variation.setIndex(v);
+            flag.getVariations().add(variation);
+        }
+        return flag;
+    }
+
+    private static void requires(FeatureFlag flag, String prerequisiteKey, int variationIndex) {
+        FlagPrerequisite prerequisite = new FlagPrerequisite();
+        prerequisite.setFeatureFlag(flag);
+        prerequisite.setPrerequisiteKey(prerequisiteKey);
+        prerequisite.setVariationIndex(variationIndex);
+        flag.getPrerequisites().add(prerequisite);
+    }
+
+    private static Rule emailRule(String suffix) {
+        Rule rule = new Rule();
+        rule.setId(99L);
+        rule.setAttribute("email");
+        rule.setOperator("endswith");
+        rule.setValue(suffix);
+        rule.setVariationIndex(1);
+        rule.setOrder(0);
+        return rule;
+    }
+
+    private static FlagPrerequisiteRepository.Edge edge(String flagKey, String prerequisiteKey) {
+        return new FlagPrerequisiteRepository.Edge() {
+            @Override
+            public String getFlagKey() {
+                return flagKey;
+            }
+
+            @Override
+            public String getPrerequisiteKey() {
+                return prerequisiteKey;
+            }
+        };
+    }
+
+    private static CreateRuleDto rule(String email) {
+        CreateRuleDto dto = new CreateRuleDto();
+        dto.setFlagKey("checkout");
+        dto.setAttribute("email");
+        dto.setOperator("equals");
+        dto.setValue(email);
+        dto.setVariationIndex(1);
+        return dto;
+    }
+}
@@ -0,0 +1,198 @@
+package com.security.service;
+
+import com.security.config.ClusterSyncProperties;
+import com.security.entity.FeatureFlag;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.CompiledSegment;
+import com.security.evaluation.FlagSnapshot;
+import com.security.evaluation.SegmentRegistry;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.SegmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Payloads produced by {@link FlagChangeNotifier} as applied by the receiving
+ * node. The LISTEN connection itself needs Postgres and is not covered here.
+ */
+class FlagChangeSubscriberTest {
+
+    private final FlagSnapshotService flagSnapshotService = mock(FlagSnapshotService.class);
+    private final FeatureFlagRepository featureFlagRepository = mock(FeatureFlagRepository.class);
+    private final SegmentRepository segmentRepository = mock(SegmentRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private FlagChangeSubscriber subscriber;
+
+    @BeforeEach
+    void setUp() {
+        when(flagSnapshotService.current()).thenReturn(new FlagSnapshot(Map.of("checkout", compiled("checkout", 1L, 4)), 1L));
+        when(flagSnapshotService.segments()).thenReturn(new SegmentRegistry());
+        subscriber = new FlagChangeSubscriber(new ClusterSyncProperties(), new DataSourceProperties(),
+                flagSnapshotService, featureFlagRepository, segmentRepository, eventPublisher);
+    }
+
+    @Test
+    void payloadCarriesTypeVersionAndKey() {
+        assertThat(FlagChangeNotifier.payload(new FlagChangedEvent("checkout", FlagChangeType.TOGGLED), 5))
+                .isEqualTo("TOGGLED:5:checkout");
+        assertThat(FlagChangeNotifier.payload(new FlagChangedEvent(null, FlagChangeType.IMPORTED), 0))
+                .isEqualTo("IMPORTED:0:*");
+        assertThat(FlagChangeNotifier.segmentPayload("beta-testers", 2)).isEqualTo("SEGMENT:2:beta-testers");
+        // Only the first two colons separate fields, so keys may contain more
+        assertThat(FlagChangeNotifier.payload(new FlagChangedEvent("a:b", FlagChangeType.DELETED),
+                FlagChangeNotifier.NO_VERSION)).isEqualTo("DELETED:-1:a:b");
+    }
+
+    @Test
+    void newerVersionFromAnotherNodeIsReloadedAndRepublished() {
+        subscriber.apply(FlagChangeNotifier.payload(new FlagChangedEvent("checkout", FlagChangeType.RULE_ADDED), 5));
+
+        verify(flagSnapshotService).reload("checkout");
+        verify(eventPublisher).publishEvent(new FlagChangedEvent("checkout", FlagChangeType.RULE_ADDED));
+    }
+
+    @Test
+    void versionAlreadyInTheSnapshotIsSkipped() {
+        subscriber.apply(FlagChangeNotifier.payload(new FlagChangedEvent("checkout", FlagChangeType.TOGGLED), 4));
+        subscriber.apply(FlagChangeNotifier.payload(new FlagChangedEvent("gone", FlagChangeType.DELETED),
+                FlagChangeNotifier.NO_VERSION));
+
+        verify(flagSnapshotService, never()).reload(anyString());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void bulkAndSegmentChangesReloadWhatTheyName() {
+        subscriber.apply(FlagChangeNotifier.payload(new FlagChangedEvent(null, FlagChangeType.IMPORTED), 0));
+        subscriber.apply(FlagChangeNotifier.segmentPayload("beta-testers", 2));
+
+        verify(flagSnapshotService).reloadAll();
+        verify(eventPublisher).publishEvent(new FlagChangedEvent(null, FlagChangeType.IMPORTED));
+        verify(flagSnapshotService).reloadSegment("beta-testers");
+    }
+
+    @Test
+    void malformedPayloadsAreIgnored() {
+        for (String payload : List.of("", "garbage", "TOGGLED:checkout", "TOGGLED:x:checkout",
+                "RENAMED:5:checkout", "SEGMENT:v2:beta-testers")) {
+            assertThatCode(() -> subscriber.apply(payload)).as(payload).doesNotThrowAnyException();
+        }
+
+        verify(flagSnapshotService, never()).reload(anyString());
+        verify(flagSnapshotService, never()).reloadSegment(anyString());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void reconciliationReplaysChangesMissedWhileDisconnected() {
+        when(featureFlagRepository.findAllVersions()).thenReturn(List.of(version("pricing", 2L, 1)));
+
+        subscriber.reconcile();
+
+        verify(flagSnapshotService).reload("pricing");
+        verify(eventPublisher).publishEvent(new FlagChangedEvent("pricing", FlagChangeType.CREATED));
+        verify(flagSnapshotService).reload("checkout");
+        verify(eventPublisher).publishEvent(new FlagChangedEvent("checkout", FlagChangeType.DELETED));
+    }
+
+    @Test
+    void reconciliationReloadsAFlagRecreatedAtTheSameVersion() {
+        when(flagSnapshotService.current()).thenReturn(new FlagSnapshot(Map.of("checkout", compiled("checkout", 1L, 0)), 1L));
+        when(featureFlagRepository.findAllVersions()).thenReturn(List.of(version("checkout", 7L, 0)));
+
+        subscriber.reconcile();
+
+        verify(flagSnapshotService).reload("checkout");
+        verify(eventPublisher).publishEvent(new FlagChangedEvent("checkout", FlagChangeType.UPDATED));
+    }
+
+    @Test
+    void reconciliationLeavesCurrentFlagsAlone() {
+        when(featureFlagRepository.findAllVersions()).thenReturn(List.of(version("checkout", 1L, 4)));
+
+        subscriber.reconcile();
+
+        verify(flagSnapshotService, never()).reload(anyString());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void reconciliationReloadsASegmentRecreatedAtTheSameVersion() {
+        SegmentRegistry segments = new SegmentRegistry();
+        segments.put(CompiledSegment.of("beta-testers", 3L, 0, new long[0], 0));
+        segments.put(CompiledSegment.of("staff", 4L, 2, new long[0], 0));
+        when(flagSnapshotService.segments()).thenReturn(segments);
+        when(featureFlagRepository.findAllVersions()).thenReturn(List.of(version("checkout", 1L, 4)));
+        when(segmentRepository.findAllVersions()).thenReturn(List.of(
+                segmentVersion("beta-testers", 9L, 0), segmentVersion("staff", 4L, 2)));
+
+        subscriber.reconcile();
+
+        verify(flagSnapshotService).reloadSegment("beta-testers");
+        verify(flagSnapshotService, never()).reloadSegment("staff");
+    }
+
+    private static CompiledFlag compiled(String key, Long id, long version) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setId(id);
+        flag.setKey(key);
+        flag.setVersion(version);
+        return CompiledFlag.from(flag, new SegmentRegistry());
+    }
+
+    private static FeatureFlagRepository.FlagVersion version(String key, Long id, long version) {
+        return new FeatureFlagRepository.FlagVersion() {
+            @Override
+            public String getFlagKey() {
+                return key;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public long getVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static SegmentRepository.SegmentVersion segmentVersion(String key, Long id, long version) {
+        return new SegmentRepository.SegmentVersion() {
+            @Override
+            public String getSegmentKey() {
+                return key;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public long getVersion() {
+                return version;
+            }
+        };
+    }
+}
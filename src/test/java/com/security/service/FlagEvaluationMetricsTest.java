@@ -0,0 +1,85 @@
+package com.security.service;
+
+import com.security.config.FlagMetricsProperties;
+import com.security.evaluation.CompiledVariation;
+import com.security.evaluation.EvaluationResult;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlagEvaluationMetricsTest {
+
+    private static final CompiledVariation ON = new CompiledVariation(1, "on", "true");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FlagMetricsProperties properties = new FlagMetricsProperties();
+    private final FlagEvaluationMetrics metrics = new FlagEvaluationMetrics(registry, properties);
+
+    @Test
+    void metersOfADeletedFlagAreRemoved() {
+        evaluate("checkout", "rollout");
+        evaluate("checkout", "default_variation");
+        evaluate("beta", "rollout");
+
+        metrics.onFlagChanged(new FlagChangedEvent("checkout", FlagChangeType.DELETED));
+
+        assertThat(flagTags("feature_flags.evaluation")).containsExactly("beta");
+        assertThat(flagTags("feature_flags.rule_match.position")).containsExactly("beta");
+        assertThat(registry.get("feature_flags.evaluations").tag("reason", "rollout").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void otherChangesKeepTheMeters() {
+        evaluate("checkout", "rollout");
+
+        metrics.onFlagChanged(new FlagChangedEvent("checkout", FlagChangeType.UPDATED));
+
+        assertThat(flagTags("feature_flags.evaluation")).containsExactly("checkout");
+    }
+
+    @Test
+    void flagsBeyondTheCapShareOneTag() {
+        properties.setMaxTaggedFlags(2);
+        for (String flag : new String[]{"a", "b", "c", "d"}) {
+            evaluate(flag, "rollout");
+        }
+
+        assertThat(flagTags("feature_flags.evaluation"))
+                .containsExactlyInAnyOrder("a", "b", FlagEvaluationMetrics.OTHER_FLAGS);
+        assertThat(registry.get("feature_flags.evaluation").tag("flag", FlagEvaluationMetrics.OTHER_FLAGS)
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void deletingATaggedFlagFreesItsPlace() {
+        properties.setMaxTaggedFlags(1);
+        evaluate("a", "rollout");
+        evaluate("b", "rollout");
+
+        metrics.onFlagChanged(new FlagChangedEvent("a", FlagChangeType.DELETED));
+        evaluate("b", "rollout");
+
+        assertThat(flagTags("feature_flags.evaluation"))
+                .containsExactlyInAnyOrder("b", FlagEvaluationMetrics.OTHER_FLAGS);
+        assertThat(registry.get("feature_flags.evaluation").tag("flag", "b").timer().count()).isEqualTo(1);
+    }
+
+    private void evaluate(String flagKey, String reason) {
+        metrics.recordEvaluation(new EvaluationResult(flagKey, true, ON, reason, null), 1_000);
+    }
+
+    private Set<String> flagTags(String meter) {
+        return registry.find(meter).meters().stream()
+                .map(Meter::getId)
+                .map(id -> id.getTag("flag"))
+                .collect(Collectors.toSet());
+    }
+}
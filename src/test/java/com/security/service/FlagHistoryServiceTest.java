@@ -0,0 +1,220 @@
+package com.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.config.HistoryProperties;
+import com.security.dto.FeatureFlagDto;
+import com.security.dto.FlagHistoryDiffDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.FlagConfigSnapshot;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import com.security.event.FlagChangeType;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagChangeLogRepository;
+import com.security.repository.FlagConfigSnapshotRepository;
+import com.security.repository.FlagPrerequisiteRepository;
+import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
+import com.security.repository.VariationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays the change log against H2; the advisory lock is stubbed with an alias
+ * that always grants it.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:history;NON_KEYWORDS=KEY,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class FlagHistoryServiceTest {
+
+    @Autowired
+    private FeatureFlagRepository featureFlagRepository;
+
+    @Autowired
+    private FlagChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private FlagConfigSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private FeatureFlagService featureFlagService;
+    private FlagHistoryRecorder recorder;
+    private FlagHistoryService historyService;
+
+    public static boolean tryLock(long key) {
+        return true;
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS pg_try_advisory_xact_lock FOR '"
+                + FlagHistoryServiceTest.class.getName() + ".tryLock'");
+
+        HistoryProperties properties = new HistoryProperties();
+        properties.setSettleTime(Duration.ZERO);
+        properties.setSnapshotEveryEntries(3);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+        featureFlagService = new FeatureFlagService(featureFlagRepository, mock(VariationRepository.class),
+                mock(RuleRepository.class), mock(SegmentRepository.class), mock(FlagPrerequisiteRepository.class),
+                mock(FlagSnapshotService.class), mock(ApplicationEventPublisher.class),
+                mock(FlagEvaluationMetrics.class), List.of());
+        recorder = new FlagHistoryRecorder(featureFlagRepository, featureFlagService, jdbcTemplate, objectMapper);
+        historyService = new FlagHistoryService(properties, changeLogRepository, snapshotRepository,
+                featureFlagRepository, featureFlagService, jdbcTemplate, objectMapper, transactionManager);
+    }
+
+    @Test
+    void configAtAnyTimeMatchesTheLiveStateThen() throws InterruptedException {
+        historyService.compact();
+        LocalDateTime beforeAnything = tick();
+
+        FeatureFlag checkout = create("checkout");
+        LocalDateTime t1 = tick();
+        Map<String, FeatureFlagDto> atT1 = live();
+
+        checkout.setEnabled(true);
+        change("checkout", FlagChangeType.TOGGLED);
+        create("pricing");
+        LocalDateTime t2 = tick();
+        Map<String, FeatureFlagDto> atT2 = live();
+
+        // Three entries since the first snapshot: compaction takes a new one
+        historyService.compact();
+        assertThat(snapshotRepository.count()).isEqualTo(2);
+        FlagConfigSnapshot compacted = snapshotRepository.findFirstByOrderByIdDesc().orElseThrow();
+        assertThat(compacted.getFlagCount()).isEqualTo(2);
+        LocalDateTime t3 = tick();
+
+        addRule(checkout);
+        change("checkout", FlagChangeType.RULE_ADDED);
+        entityManager.remove(featureFlagRepository.findByKey("pricing").orElseThrow());
+        change("pricing", FlagChangeType.DELETED);
+        LocalDateTime t4 = tick();
+        Map<String, FeatureFlagDto> atT4 = live();
+
+        // Two entries are below the threshold
+        historyService.compact();
+        assertThat(snapshotRepository.count()).isEqualTo(2);
+
+        assertThat(historyService.getConfigAt(beforeAnything)).isEmpty();
+        assertThat(historyService.getConfigAt(t1)).isEqualTo(atT1);
+        assertThat(historyService.getConfigAt(t2)).isEqualTo(atT2);
+        assertThat(historyService.getConfigAt(t3)).isEqualTo(atT2);
+        assertThat(historyService.getConfigAt(t4)).isEqualTo(atT4);
+
+        assertThat(historyService.getFlagAt("checkout", t1)).isEqualTo(atT1.get("checkout"));
+        assertThat(historyService.getFlagAt("checkout", t4)).isEqualTo(atT4.get("checkout"));
+        assertThat(historyService.getFlagAt("pricing", t3)).isEqualTo(atT2.get("pricing"));
+        assertThat(historyService.getFlagAt("pricing", t4)).isNull();
+    }
+
+    @Test
+    void diffListsAddedRemovedAndChangedFlags() throws InterruptedException {
+        historyService.compact();
+        FeatureFlag checkout = create("checkout");
+        create("pricing");
+        LocalDateTime from = tick();
+
+        checkout.setEnabled(true);
+        addRule(checkout);
+        change("checkout", FlagChangeType.RULE_ADDED);
+        entityManager.remove(featureFlagRepository.findByKey("pricing").orElseThrow());
+        change("pricing", FlagChangeType.DELETED);
+        create("search");
+        LocalDateTime to = tick();
+
+        FlagHistoryDiffDto diff = historyService.diff(from, to);
+
+        assertThat(diff.getAdded()).containsExactly("search");
+        assertThat(diff.getRemoved()).containsExactly("pricing");
+        assertThat(diff.getChanged()).containsOnlyKeys("checkout");
+        assertThat(diff.getChanged().get("checkout")).containsExactlyInAnyOrder("enabled", "rules");
+    }
+
+    @Test
+    void historyStartsAtTheFirstSnapshot() {
+        assertThatThrownBy(() -> historyService.getConfigAt(LocalDateTime.now()))
+                .hasMessageStartingWith("No flag history before");
+    }
+
+    private FeatureFlag create(String key) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey(key);
+        flag.setName(key);
+        for (int v = 0; v < 2; v++) {
+            Variation variation = new Variation();
+            variation.setFeatureFlag(flag);
+            variation.setName("variation-" + v);
+            variation.setValue(String.valueOf(v));
+            variation.setIndex(v);
+            flag.getVariations().add(variation);
+        }
+        entityManager.persist(flag);
+        change(key, FlagChangeType.CREATED);
+        return flag;
+    }
+
+    private void addRule(FeatureFlag flag) {
+        Rule rule = new Rule();
+        rule.setFeatureFlag(flag);
+        rule.setAttribute("email");
+        rule.setOperator("endswith");
+        rule.setValue("@example.com");
+        rule.setVariationIndex(1);
+        rule.setOrder(FeatureFlagService.nextRuleOrder(flag.getRules()));
+        flag.getRules().add(rule);
+    }
+
+    private void change(String key, FlagChangeType type) {
+        entityManager.flush();
+        recorder.record(List.of(key), type);
+    }
+
+    private Map<String, FeatureFlagDto> live() {
+        Map<String, FeatureFlagDto> flags = new HashMap<>();
+        for (FeatureFlag flag : featureFlagRepository.findAllWithVariations()) {
+            flags.put(flag.getKey(), featureFlagService.convertToDto(flag));
+        }
+        return flags;
+    }
+
+    // Keeps the timestamps of consecutive steps apart
+    private static LocalDateTime tick() throws InterruptedException {
+        Thread.sleep(5);
+        LocalDateTime now = LocalDateTime.now();
+        Thread.sleep(5);
+        return now;
+    }
+}
@@ -0,0 +1,223 @@
+package com.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.dto.FlagImportResultDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.FlagPrerequisite;
+import com.security.entity.Variation;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagPrerequisiteRepository;
+import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
+import com.security.repository.VariationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs imports against H2; the write path only uses portable SQL.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:transfer;NON_KEYWORDS=KEY,VALUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FlagTransferServiceTest {
+
+    private static final String EMAIL_RULE =
+            "{\"attribute\":\"email\",\"operator\":\"endswith\",\"value\":\"@example.com\",\"variationIndex\":1}";
+
+    @Autowired
+    private FeatureFlagRepository featureFlagRepository;
+
+    @Autowired
+    private SegmentRepository segmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private FlagTransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        FeatureFlag payments = flag("payments", 3);
+        FeatureFlag checkout = flag("checkout", 2);
+        FlagPrerequisite prerequisite = new FlagPrerequisite();
+        prerequisite.setFeatureFlag(checkout);
+        prerequisite.setPrerequisiteKey("payments");
+        prerequisite.setVariationIndex(2);
+        checkout.getPrerequisites().add(prerequisite);
+        entityManager.persist(payments);
+        entityManager.persist(checkout);
+        entityManager.flush();
+        entityManager.clear();
+
+        FeatureFlagService featureFlagService = new FeatureFlagService(featureFlagRepository,
+                mock(VariationRepository.class), mock(RuleRepository.class), segmentRepository,
+                mock(FlagPrerequisiteRepository.class), mock(FlagSnapshotService.class),
+                mock(ApplicationEventPublisher.class), mock(FlagEvaluationMetrics.class), List.of());
+        transferService = new FlagTransferService(featureFlagRepository, featureFlagService, segmentRepository,
+                jdbcTemplate, new ObjectMapper().findAndRegisterModules(), entityManager,
+                mock(ApplicationEventPublisher.class), mock(FlagHistoryRecorder.class));
+    }
+
+    @Test
+    void exportedPrerequisitesImportUnchanged() throws IOException {
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        transferService.exportFlags(exported);
+
+        assertThat(exported.toString(StandardCharsets.UTF_8)).contains("\"prerequisites\":[{\"flagKey\":\"payments\"");
+        FlagImportResultDto result = transferService.importFlags(new ByteArrayInputStream(exported.toByteArray()), true);
+        assertThat(result.getUnchanged()).isEqualTo(2);
+        assertThat(result.getUpdated()).isEmpty();
+    }
+
+    @Test
+    void changedPrerequisitesAreReportedInTheDiff() throws IOException {
+        FlagImportResultDto result = dryRun("[" + json("checkout", 2, "{\"flagKey\":\"payments\",\"variationIndex\":1}") + "]");
+
+        assertThat(result.getUpdated()).containsEntry("checkout", List.of("prerequisites"));
+    }
+
+    @Test
+    void rejectsPrerequisiteOnMissingFlagOrVariation() {
+        assertThatThrownBy(() -> dryRun("[" + json("checkout", 2, "{\"flagKey\":\"missing\",\"variationIndex\":0}") + "]"))
+                .hasMessageContaining("prerequisite flag not found: missing");
+        assertThatThrownBy(() -> dryRun("[" + json("checkout", 2, "{\"flagKey\":\"payments\",\"variationIndex\":3}") + "]"))
+                .hasMessageContaining("invalid variation index for payments: 3");
+    }
+
+    @Test
+    void rejectsImportThatOrphansAStoredDependent() {
+        // checkout, which is not imported, requires variation 2 of payments
+        assertThatThrownBy(() -> dryRun("[" + json("payments", 2, "") + "]"))
+                .hasMessageContaining("Flag checkout: invalid variation index for payments: 2");
+    }
+
+    @Test
+    void rejectsCyclesThroughStoredAndImportedFlags() {
+        assertThatThrownBy(() -> dryRun("[" + json("payments", 3, "{\"flagKey\":\"checkout\",\"variationIndex\":0}") + "]"))
+                .hasMessageContaining("cycle among: checkout, payments");
+    }
+
+    @Test
+    void rejectsInSegmentRuleForMissingSegment() {
+        String flag = "{\"key\":\"beta\",\"name\":\"beta\",\"variations\":[{\"name\":\"on\",\"value\":\"true\"}],"
+                + "\"rules\":[{\"attribute\":\"userId\",\"operator\":\"insegment\",\"value\":\"testers\",\"variationIndex\":0}]}";
+        assertThatThrownBy(() -> dryRun("[" + flag + "]")).hasMessageContaining("Segment not found: testers");
+    }
+
+    @Test
+    void importInsertsNewFlagsAndReplacesChangedOnes() throws IOException {
+        FlagImportResultDto result = apply("[" + json("payments", 4, "") + ","
+                + json("beta", 2, "{\"flagKey\":\"payments\",\"variationIndex\":1}", EMAIL_RULE) + "]");
+
+        assertThat(result.getCreated()).containsExactly("beta");
+        assertThat(result.getUpdated()).containsOnlyKeys("payments");
+
+        FeatureFlag payments = featureFlagRepository.findByKey("payments").orElseThrow();
+        assertThat(payments.getVersion()).isEqualTo(1);
+        assertThat(payments.getVariations()).extracting(Variation::getName)
+                .containsExactlyInAnyOrder("variation-0", "variation-1", "variation-2", "variation-3");
+
+        FeatureFlag beta = featureFlagRepository.findByKey("beta").orElseThrow();
+        assertThat(beta.getVersion()).isZero();
+        assertThat(beta.getVariations()).extracting(Variation::getIndex).containsExactlyInAnyOrder(0, 1);
+        assertThat(beta.getRules()).singleElement().satisfies(rule -> {
+            assertThat(rule.getAttribute()).isEqualTo("email");
+            assertThat(rule.getValue()).isEqualTo("@example.com");
+            assertThat(rule.getOrder()).isZero();
+        });
+        assertThat(beta.getPrerequisites()).extracting(FlagPrerequisite::getPrerequisiteKey, FlagPrerequisite::getVariationIndex)
+                .containsExactly(tuple("payments", 1));
+
+        // Not in the import, so left as it was
+        FeatureFlag checkout = featureFlagRepository.findByKey("checkout").orElseThrow();
+        assertThat(checkout.getVersion()).isZero();
+        assertThat(checkout.getPrerequisites()).extracting(FlagPrerequisite::getVariationIndex).containsExactly(2);
+    }
+
+    @Test
+    void reimportReplacesRulesAndPrerequisites() throws IOException {
+        apply("[" + json("checkout", 2, "{\"flagKey\":\"payments\",\"variationIndex\":1}", EMAIL_RULE) + "]");
+        FlagImportResultDto result = apply("[" + json("checkout", 2, "") + "]");
+
+        assertThat(result.getUpdated()).containsEntry("checkout", List.of("rules", "prerequisites"));
+        FeatureFlag checkout = featureFlagRepository.findByKey("checkout").orElseThrow();
+        assertThat(checkout.getVersion()).isEqualTo(2);
+        assertThat(checkout.getRules()).isEmpty();
+        assertThat(checkout.getPrerequisites()).isEmpty();
+        assertThat(checkout.getVariations()).hasSize(2);
+    }
+
+    @Test
+    void unchangedImportWritesNothing() throws IOException {
+        FlagImportResultDto result = apply("[" + json("payments", 3, "") + "]");
+
+        assertThat(result.getUnchanged()).isEqualTo(1);
+        assertThat(featureFlagRepository.findByKey("payments").orElseThrow().getVersion()).isZero();
+    }
+
+    private FlagImportResultDto dryRun(String json) throws IOException {
+        return transferService.importFlags(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    private FlagImportResultDto apply(String json) throws IOException {
+        FlagImportResultDto result =
+                transferService.importFlags(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), false);
+        entityManager.clear();
+        return result;
+    }
+
+    private static String json(String key, int variations, String prerequisites) {
+        return json(key, variations, prerequisites, "");
+    }
+
+    private static String json(String key, int variations, String prerequisites, String rules) {
+        StringBuilder json = new StringBuilder("{\"key\":\"").append(key).append("\",\"name\":\"").append(key)
+                .append("\",\"variations\":[");
+        for (int v = 0; v < variations; v++) {
+            json.append(v > 0 ? "," : "").append("{\"name\":\"variation-").append(v).append("\",\"value\":\"")
+                    .append(v).append("\"}");
+        }
+        return json.append("],\"defaultVariation\":\"variation-0\",\"rules\":[").append(rules)
+                .append("],\"prerequisites\":[").append(prerequisites).append("]}").toString();
+    }
+
+    private static FeatureFlag flag(String key, int variations) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey(key);
+        flag.setName(key);
+        for (int v = 0; v < variations; v++) {
+            Variation variation = new Variation();
+            variation.setFeatureFlag(flag);
+            variation.setName("variation-" + v);
+            variation.setValue(String.valueOf(v));
+            variation.setIndex(v);
+            flag.getVariations().add(variation);
+        }
+        return flag;
+    }
+}
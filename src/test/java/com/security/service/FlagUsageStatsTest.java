@@ -0,0 +1,141 @@
+package com.security.service;
+
+import com.security.config.UsageStatsProperties;
+import com.security.evaluation.CompiledVariation;
+import com.security.evaluation.EvaluationResult;
+import com.security.repository.FlagEvaluationStatRepository;
+import com.security.repository.FlagUsageSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagUsageStatsTest {
+
+    private static final CompiledVariation OFF = new CompiledVariation(0, "off", "false");
+    private static final CompiledVariation ON = new CompiledVariation(1, "on", "true");
+    private static final EvaluationResult CHECKOUT_ON = new EvaluationResult("checkout", true, ON, "rollout", null);
+    private static final EvaluationResult CHECKOUT_OFF = new EvaluationResult("checkout", true, OFF, "rollout", null);
+    private static final EvaluationResult BETA_DEFAULT =
+            new EvaluationResult("beta", true, OFF, "default_variation", null);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final FlagUsageStats stats = new FlagUsageStats(new UsageStatsProperties(), jdbcTemplate,
+            mock(FlagEvaluationStatRepository.class), mock(FlagUsageSummaryRepository.class));
+
+    // "flag/variation" -> count of each stats insert, and the flag keys of each summary upsert
+    private final List<Map<String, Long>> inserts = new ArrayList<>();
+    private final List<List<String>> summaries = new ArrayList<>();
+    private boolean failInserts;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            Collection<Object> rows = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            if (sql.startsWith("INSERT INTO flag_evaluation_stats")) {
+                if (failInserts) {
+                    throw new DataAccessResourceFailureException("connection refused");
+                }
+                Map<String, Long> counts = new HashMap<>();
+                for (Object row : rows) {
+                    PreparedStatement ps = mock(PreparedStatement.class);
+                    setter.setValues(ps, row);
+                    ArgumentCaptor<String> flagKey = ArgumentCaptor.forClass(String.class);
+                    ArgumentCaptor<Integer> variation = ArgumentCaptor.forClass(Integer.class);
+                    ArgumentCaptor<Long> count = ArgumentCaptor.forClass(Long.class);
+                    verify(ps).setString(eq(1), flagKey.capture());
+                    verify(ps).setInt(eq(3), variation.capture());
+                    verify(ps).setLong(eq(6), count.capture());
+                    counts.put(flagKey.getValue() + "/" + variation.getValue(), count.getValue());
+                }
+                inserts.add(counts);
+            } else {
+                List<String> flagKeys = new ArrayList<>();
+                for (Object row : rows) {
+                    flagKeys.add((String) row);
+                }
+                summaries.add(flagKeys);
+            }
+            return new int[0][];
+        });
+    }
+
+    @Test
+    void flushWritesOneRowPerOutcomeAndMovesSummariesForward() {
+        evaluate(CHECKOUT_ON, 3);
+        evaluate(CHECKOUT_OFF, 1);
+        evaluate(BETA_DEFAULT, 2);
+
+        stats.flush();
+
+        assertThat(inserts).containsExactly(Map.of("checkout/1", 3L, "checkout/0", 1L, "beta/0", 2L));
+        assertThat(summaries).containsExactly(List.of("beta", "checkout"));
+    }
+
+    @Test
+    void countsAreResetByAFlush() {
+        evaluate(CHECKOUT_ON, 3);
+        stats.flush();
+        evaluate(CHECKOUT_ON, 1);
+        stats.flush();
+        stats.flush();
+
+        assertThat(inserts).containsExactly(Map.of("checkout/1", 3L), Map.of("checkout/1", 1L));
+    }
+
+    @Test
+    void countsOfAFailedFlushAreWrittenByTheNextOne() {
+        evaluate(CHECKOUT_ON, 3);
+        failInserts = true;
+        stats.flush();
+        assertThat(summaries).isEmpty();
+
+        failInserts = false;
+        evaluate(CHECKOUT_ON, 2);
+        evaluate(BETA_DEFAULT, 1);
+        stats.flush();
+
+        assertThat(inserts).containsExactly(Map.of("checkout/1", 5L, "beta/0", 1L));
+    }
+
+    @Test
+    void failedSummaryUpdateDoesNotWriteTheCountsTwice() {
+        when(jdbcTemplate.batchUpdate(argThat(sql -> sql.startsWith("INSERT INTO flag_usage_summary")),
+                anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        evaluate(CHECKOUT_ON, 3);
+        stats.flush();
+        stats.flush();
+
+        assertThat(inserts).containsExactly(Map.of("checkout/1", 3L));
+    }
+
+    private void evaluate(EvaluationResult result, int times) {
+        for (int i = 0; i < times; i++) {
+            stats.onEvaluation(result, Map.of());
+        }
+    }
+}
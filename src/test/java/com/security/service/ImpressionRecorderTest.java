@@ -0,0 +1,153 @@
+package com.security.service;
+
+import com.security.config.ImpressionProperties;
+import com.security.evaluation.CompiledVariation;
+import com.security.evaluation.EvaluationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImpressionRecorderTest {
+
+    private static final EvaluationResult ON =
+            new EvaluationResult("checkout", true, new CompiledVariation(1, "on", "true"), "rollout", null);
+
+    private final ImpressionProperties properties = new ImpressionProperties();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // User keys of each batch insert, in order
+    private final List<List<String>> batches = new ArrayList<>();
+    private boolean failWrites;
+
+    @BeforeEach
+    void setUp() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(invocation -> {
+            if (failWrites) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            Collection<Object> impressions = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            List<String> users = new ArrayList<>();
+            for (Object impression : impressions) {
+                PreparedStatement ps = mock(PreparedStatement.class);
+                setter.setValues(ps, impression);
+                ArgumentCaptor<String> user = ArgumentCaptor.forClass(String.class);
+                verify(ps).setString(eq(2), user.capture());
+                verify(ps).setInt(3, 1);
+                users.add(user.getValue());
+            }
+            batches.add(users);
+            return new int[0][];
+        });
+    }
+
+    @Test
+    void repeatedImpressionsWithinTheWindowAreWrittenOnce() {
+        ImpressionRecorder recorder = recorder();
+        evaluate(recorder, "alice", "alice", "bob");
+        recorder.flush();
+        evaluate(recorder, "alice");
+        recorder.flush();
+
+        assertThat(batches).containsExactly(List.of("alice", "bob"));
+        assertThat(count("deduplicated")).isEqualTo(2);
+        assertThat(count("written")).isEqualTo(2);
+    }
+
+    @Test
+    void leastRecentlyWrittenTupleIsForgottenFirst() {
+        properties.setDedupMaxEntries(2);
+        ImpressionRecorder recorder = recorder();
+        evaluate(recorder, "alice", "bob");
+        recorder.flush();
+        // Seeing alice again makes bob the eldest entry, so carol evicts bob
+        evaluate(recorder, "alice", "carol");
+        recorder.flush();
+        evaluate(recorder, "alice", "bob");
+        recorder.flush();
+
+        assertThat(batches).containsExactly(List.of("alice", "bob"), List.of("carol"), List.of("bob"));
+    }
+
+    @Test
+    void fullQueueDropsAndCountsImpressions() {
+        properties.setQueueSize(2);
+        ImpressionRecorder recorder = recorder();
+        evaluate(recorder, "alice", "bob", "carol");
+
+        assertThat(count("enqueued")).isEqualTo(2);
+        assertThat(count("dropped")).isEqualTo(1);
+        recorder.flush();
+        assertThat(batches).containsExactly(List.of("alice", "bob"));
+    }
+
+    @Test
+    void flushWritesEverythingQueuedInBatches() {
+        properties.setBatchSize(2);
+        ImpressionRecorder recorder = recorder();
+        evaluate(recorder, "a", "b", "c", "d", "e");
+        recorder.flush();
+
+        assertThat(batches).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e"));
+        assertThat(registry.get("feature_flags.impressions.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void failedBatchIsCountedAndWrittenAgainNextTime() {
+        ImpressionRecorder recorder = recorder();
+        failWrites = true;
+        evaluate(recorder, "alice", "bob");
+        recorder.flush();
+        assertThat(count("failed")).isEqualTo(2);
+
+        failWrites = false;
+        evaluate(recorder, "alice");
+        recorder.flush();
+        assertThat(batches).containsExactly(List.of("alice"));
+    }
+
+    @Test
+    void evaluationsWithoutTheUserAttributeAreIgnored() {
+        ImpressionRecorder recorder = recorder();
+        recorder.onEvaluation(ON, Map.of("email", "alice@example.com"));
+        recorder.flush();
+
+        assertThat(count("enqueued")).isZero();
+        assertThat(batches).isEmpty();
+    }
+
+    private ImpressionRecorder recorder() {
+        return new ImpressionRecorder(properties, jdbcTemplate, registry);
+    }
+
+    private static void evaluate(ImpressionRecorder recorder, String... users) {
+        for (String user : users) {
+            recorder.onEvaluation(ON, Map.of("userId", user));
+        }
+    }
+
+    private double count(String outcome) {
+        return registry.get("feature_flags.impressions").tag("outcome", outcome).counter().count();
+    }
+}
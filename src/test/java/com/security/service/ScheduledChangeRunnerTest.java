@@ -0,0 +1,98 @@
+package com.security.service;
+
+import com.security.config.ScheduledChangeProperties;
+import com.security.entity.FeatureFlag;
+import com.security.entity.ScheduledFlagChange;
+import com.security.repository.ScheduledFlagChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScheduledChangeRunnerTest {
+
+    private final ScheduledChangeProperties properties = new ScheduledChangeProperties();
+    private final ScheduledFlagChangeRepository repository = mock(ScheduledFlagChangeRepository.class);
+    private final ScheduledChangeService service = mock(ScheduledChangeService.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ScheduledChangeRunner runner =
+            new ScheduledChangeRunner(properties, repository, service, jdbcTemplate, transactionManager);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findDueIds(eq(ScheduledFlagChange.Status.PENDING), any(), any())).thenReturn(List.of(1L, 2L));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(true);
+    }
+
+    @Test
+    void dueChangesAreLookedUpByTheCurrentInstant() {
+        Instant before = Instant.now();
+        runner.applyDueChanges();
+
+        verify(repository).findDueIds(eq(ScheduledFlagChange.Status.PENDING),
+                argThat(now -> !now.isBefore(before) && now.isBefore(before.plus(Duration.ofMinutes(1)))),
+                any());
+    }
+
+    @Test
+    void onlyAppliedChangesAreCounted() {
+        when(service.apply(1L)).thenReturn(true);
+        when(service.apply(2L)).thenReturn(false);
+
+        assertThat(runner.applyDueChanges()).isEqualTo(1);
+        verify(service, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void anotherNodeHoldingTheLockStopsTheRound() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any())).thenReturn(false);
+
+        assertThat(runner.applyDueChanges()).isZero();
+        verify(service, never()).apply(any());
+    }
+
+    @Test
+    void failingChangeIsMarkedFailedAndTheRestStillApply() {
+        when(service.apply(1L)).thenThrow(new RuntimeException("Feature flag not found: checkout"));
+        when(service.apply(2L)).thenReturn(true);
+
+        assertThat(runner.applyDueChanges()).isEqualTo(1);
+        verify(service).markFailed(1L, "Feature flag not found: checkout");
+    }
+
+    @Test
+    void optimisticConflictLeavesTheChangePending() {
+        when(service.apply(any())).thenReturn(true);
+        doThrow(new ObjectOptimisticLockingFailureException(FeatureFlag.class, 1L))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        assertThat(runner.applyDueChanges()).isEqualTo(1);
+        verify(service, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void disabledRunnerDoesNothing() {
+        properties.setEnabled(false);
+
+        assertThat(runner.applyDueChanges()).isZero();
+        verify(repository, never()).findDueIds(any(), any(), any());
+    }
+}
@@ -0,0 +1,105 @@
+package com.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.dto.CreateRuleDto;
+import com.security.dto.ScheduleFlagChangeDto;
+import com.security.entity.FeatureFlag;
+import com.security.entity.ScheduledFlagChange;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.ScheduledFlagChangeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScheduledChangeServiceTest {
+
+    private final ScheduledFlagChangeRepository repository = mock(ScheduledFlagChangeRepository.class);
+    private final FeatureFlagRepository featureFlagRepository = mock(FeatureFlagRepository.class);
+    private final FeatureFlagService featureFlagService = mock(FeatureFlagService.class);
+    private final ScheduledChangeService service =
+            new ScheduledChangeService(repository, featureFlagRepository, featureFlagService, new ObjectMapper());
+
+    @Test
+    void dueTimeIsStoredAsAnInstant() {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey("checkout");
+        when(featureFlagRepository.findByKey("checkout")).thenReturn(Optional.of(flag));
+        when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ScheduleFlagChangeDto dto = new ScheduleFlagChangeDto(
+                "enable", OffsetDateTime.parse("2025-03-01T10:00:00+01:00"), null, null);
+
+        assertThat(service.schedule("checkout", dto).getDueAt()).isEqualTo(Instant.parse("2025-03-01T09:00:00Z"));
+    }
+
+    @Test
+    void pendingChangeIsAppliedThroughTheFlagService() {
+        ScheduledFlagChange change = change(ScheduledFlagChange.Action.DISABLE, ScheduledFlagChange.Status.PENDING);
+
+        assertThat(service.apply(change.getId())).isTrue();
+
+        verify(featureFlagService).toggleFlag("checkout", false, null);
+        assertThat(change.getStatus()).isEqualTo(ScheduledFlagChange.Status.APPLIED);
+        assertThat(change.getAppliedAt()).isNotNull();
+    }
+
+    @Test
+    void storedRuleIsReadBackWhenApplied() throws Exception {
+        ScheduledFlagChange change = change(ScheduledFlagChange.Action.ADD_RULE, ScheduledFlagChange.Status.PENDING);
+        CreateRuleDto rule = new CreateRuleDto("checkout", "email", "endswith", "@example.com", 1, null, null);
+        change.setPayload(new ObjectMapper().writeValueAsString(rule));
+
+        assertThat(service.apply(change.getId())).isTrue();
+
+        verify(featureFlagService).createRule(rule);
+    }
+
+    @Test
+    void changeCancelledSinceThePollIsSkipped() {
+        ScheduledFlagChange change = change(ScheduledFlagChange.Action.ENABLE, ScheduledFlagChange.Status.CANCELLED);
+
+        assertThat(service.apply(change.getId())).isFalse();
+
+        verify(featureFlagService, never()).toggleFlag(anyString(), anyBoolean(), any());
+        assertThat(change.getStatus()).isEqualTo(ScheduledFlagChange.Status.CANCELLED);
+    }
+
+    @Test
+    void missingChangeIsSkipped() {
+        when(repository.findById(9L)).thenReturn(Optional.empty());
+
+        assertThat(service.apply(9L)).isFalse();
+    }
+
+    @Test
+    void failedChangeRecordsTheError() {
+        ScheduledFlagChange change = change(ScheduledFlagChange.Action.ENABLE, ScheduledFlagChange.Status.PENDING);
+
+        service.markFailed(change.getId(), "Feature flag not found: checkout");
+
+        assertThat(change.getStatus()).isEqualTo(ScheduledFlagChange.Status.FAILED);
+        assertThat(change.getError()).isEqualTo("Feature flag not found: checkout");
+    }
+
+    private ScheduledFlagChange change(ScheduledFlagChange.Action action, ScheduledFlagChange.Status status) {
+        ScheduledFlagChange change = new ScheduledFlagChange();
+        change.setId(1L);
+        change.setFlagKey("checkout");
+        change.setAction(action);
+        change.setStatus(status);
+        change.setDueAt(Instant.parse("2025-03-01T09:00:00Z"));
+        when(repository.findById(1L)).thenReturn(Optional.of(change));
+        return change;
+    }
+}
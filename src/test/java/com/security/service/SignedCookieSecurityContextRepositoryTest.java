@@ -0,0 +1,161 @@
+package com.security.service;
+
+import com.security.config.SessionProperties;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignedCookieSecurityContextRepositoryTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SessionProperties properties = properties(Duration.ofHours(1));
+    private final SignedCookieSecurityContextRepository repository = new SignedCookieSecurityContextRepository(properties);
+
+    @Test
+    void signedTokenRestoresTheUserOnAnyNode() {
+        String token = signIn(repository, "alice@example.com");
+
+        SignedCookieSecurityContextRepository otherNode = new SignedCookieSecurityContextRepository(properties);
+        Authentication restored = load(otherNode, token);
+
+        assertThat(restored.getName()).isEqualTo("alice@example.com");
+        assertThat(restored.isAuthenticated()).isTrue();
+        assertThat(AuthorityUtils.authorityListToSet(restored.getAuthorities())).containsExactly("ROLE_USER");
+        assertThat(otherNode.containsContext(request(token))).isTrue();
+    }
+
+    @Test
+    void tamperedMacIsRejected() {
+        String token = signIn(repository, "alice@example.com");
+        int mac = token.indexOf('.') + 1;
+        String tampered = token.substring(0, mac) + (token.charAt(mac) == 'A' ? 'B' : 'A') + token.substring(mac + 1);
+
+        assertThat(load(repository, tampered)).isNull();
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = signIn(repository, "alice@example.com");
+        String[] parts = token.split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8)
+                .replace("alice@example.com", "admin@example.com");
+        String forged = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + parts[1];
+
+        assertThat(load(repository, forged)).isNull();
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        SignedCookieSecurityContextRepository expiring = new SignedCookieSecurityContextRepository(properties(Duration.ZERO));
+        String token = signIn(expiring, "alice@example.com");
+
+        assertThat(load(expiring, token)).isNull();
+    }
+
+    @Test
+    void malformedTokensAreTreatedAsSignedOut() {
+        assertThat(load(repository, "no-dot")).isNull();
+        assertThat(load(repository, "!!!.###")).isNull();
+        assertThat(load(repository, ENCODER.encodeToString("x".getBytes(StandardCharsets.UTF_8)) + ".")).isNull();
+    }
+
+    @Test
+    void signingInAgainIssuesAFreshToken() {
+        String first = signIn(repository, "alice@example.com");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveContext(context("alice@example.com"), request(first), response);
+
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).startsWith(properties.getCookieName() + "=");
+        assertThat(load(repository, cookieValue(response)).getName()).isEqualTo("alice@example.com");
+    }
+
+    @Test
+    void signOutClearsTheCookie() {
+        String token = signIn(repository, "alice@example.com");
+        assertThat(repository.cachedTokens()).isZero();
+        load(repository, token);
+        assertThat(repository.cachedTokens()).isEqualTo(1);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveContext(new SecurityContextImpl(), request(token), response);
+
+        assertThat(response.getHeader(HttpHeaders.SET_COOKIE)).contains(properties.getCookieName() + "=;", "Max-Age=0");
+        assertThat(repository.cachedTokens()).isZero();
+    }
+
+    @Test
+    void fullVerificationCacheIsClearedAndTokensStillVerify() {
+        properties.setVerificationCacheSize(2);
+        List<String> tokens = List.of(signIn(repository, "a"), signIn(repository, "b"), signIn(repository, "c"));
+
+        load(repository, tokens.get(0));
+        load(repository, tokens.get(1));
+        assertThat(repository.cachedTokens()).isEqualTo(2);
+
+        assertThat(load(repository, tokens.get(2)).getName()).isEqualTo("c");
+        assertThat(repository.cachedTokens()).isEqualTo(1);
+        assertThat(load(repository, tokens.get(0)).getName()).isEqualTo("a");
+    }
+
+    @Test
+    void shortSecretIsRejected() {
+        SessionProperties weak = properties(Duration.ofHours(1));
+        weak.setSecret(Base64.getEncoder().encodeToString(new byte[16]));
+
+        assertThatThrownBy(() -> new SignedCookieSecurityContextRepository(weak))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("at least 32 bytes");
+    }
+
+    private static String signIn(SignedCookieSecurityContextRepository repository, String username) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        repository.saveContext(context(username), new MockHttpServletRequest(), response);
+        return cookieValue(response);
+    }
+
+    private static Authentication load(SignedCookieSecurityContextRepository repository, String token) {
+        return repository.loadDeferredContext(request(token)).get().getAuthentication();
+    }
+
+    private static SecurityContext context(String username) {
+        return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("FLAGS_AUTH", token));
+        return request;
+    }
+
+    private static String cookieValue(MockHttpServletResponse response) {
+        String header = response.getHeader(HttpHeaders.SET_COOKIE);
+        return header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+    }
+
+    private static SessionProperties properties(Duration ttl) {
+        SessionProperties properties = new SessionProperties();
+        properties.setMode(SessionProperties.Mode.SIGNED_COOKIE);
+        properties.setSecret(SECRET);
+        properties.setTokenTtl(ttl);
+        return properties;
+    }
+}
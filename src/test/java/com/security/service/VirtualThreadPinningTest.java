@@ -0,0 +1,159 @@
+package com.security.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.security.config.FlagMetricsProperties;
+import com.security.config.ImpressionProperties;
+import com.security.config.UsageStatsProperties;
+import com.security.entity.FeatureFlag;
+import com.security.entity.Rule;
+import com.security.entity.Variation;
+import com.security.evaluation.CompiledFlag;
+import com.security.evaluation.FlagSnapshot;
+import com.security.evaluation.SegmentRegistry;
+import com.security.event.FlagChangeType;
+import com.security.event.FlagChangedEvent;
+import com.security.repository.FeatureFlagRepository;
+import com.security.repository.FlagEvaluationStatRepository;
+import com.security.repository.FlagPrerequisiteRepository;
+import com.security.repository.FlagUsageSummaryRepository;
+import com.security.repository.RuleRepository;
+import com.security.repository.SegmentRepository;
+import com.security.repository.VariationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the paths that serve requests in the virtual-thread profile on many
+ * virtual threads under a JFR stream and fails on any jdk.VirtualThreadPinned
+ * event: a virtual thread that parked while holding a monitor, keeping its
+ * carrier from the rest of the pool.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final int TASKS = 10_000;
+
+    @Test
+    void evaluationDoesNotPinCarriers() throws Exception {
+        FeatureFlagService service = evaluationService();
+
+        List<RecordedEvent> pinned = recordPinning(TASKS, i -> {
+            Map<String, String> context = Map.of("userId", "user-" + i, "email", "user-" + i + "@example.com");
+            service.evaluateFlagWithContext("checkout", context);
+            service.evaluateFlags(List.of(), context);
+        });
+
+        assertThat(pinned).isEmpty();
+    }
+
+    @Test
+    void streamBroadcastDoesNotPinCarriers() throws Exception {
+        FlagStreamService streams = new FlagStreamService(mock(FeatureFlagService.class), new ObjectMapper(), Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            streams.subscribe();
+        }
+
+        List<RecordedEvent> pinned = recordPinning(1_000, i ->
+                streams.onFlagChanged(new FlagChangedEvent("checkout", FlagChangeType.UPDATED)));
+
+        assertThat(pinned).isEmpty();
+    }
+
+    @Test
+    void blockingInsideSynchronizedIsReported() throws Exception {
+        Object monitor = new Object();
+
+        List<RecordedEvent> pinned = recordPinning(10, i -> {
+            synchronized (monitor) {
+                Thread.sleep(1);
+            }
+        });
+
+        assertThat(pinned).isNotEmpty();
+    }
+
+    private static List<RecordedEvent> recordPinning(int tasks, Task task) throws Exception {
+        List<RecordedEvent> events = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED, events::add);
+            recording.startAsync();
+
+            List<Future<?>> futures = new ArrayList<>(tasks);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < tasks; i++) {
+                    int n = i;
+                    futures.add(executor.submit(() -> {
+                        task.run(n);
+                        return null;
+                    }));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            // Waits until every event recorded so far has been delivered
+            recording.stop();
+        }
+        return events;
+    }
+
+    private static FeatureFlagService evaluationService() {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setKey("checkout");
+        flag.setEnabled(true);
+        flag.setRolloutWeights("50,50");
+        for (int v = 0; v < 2; v++) {
+            Variation variation = new Variation();
+            variation.setName("variation-" + v);
+            variation.setValue(String.valueOf(v));
+            variation.setIndex(v);
+            flag.getVariations().add(variation);
+        }
+        Rule rule = new Rule();
+        rule.setId(1L);
+        rule.setAttribute("email");
+        rule.setOperator("endswith");
+        rule.setValue("0@example.com");
+        rule.setVariationIndex(1);
+        rule.setOrder(0);
+        flag.getRules().add(rule);
+
+        FlagSnapshotService snapshots = mock(FlagSnapshotService.class);
+        when(snapshots.current()).thenReturn(
+                new FlagSnapshot(Map.of("checkout", CompiledFlag.from(flag, new SegmentRegistry())), 1L));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        List<EvaluationListener> listeners = List.of(
+                new FlagUsageStats(new UsageStatsProperties(), mock(JdbcTemplate.class),
+                        mock(FlagEvaluationStatRepository.class), mock(FlagUsageSummaryRepository.class)),
+                new ImpressionRecorder(new ImpressionProperties(), mock(JdbcTemplate.class), registry));
+
+        return new FeatureFlagService(mock(FeatureFlagRepository.class), mock(VariationRepository.class),
+                mock(RuleRepository.class), mock(SegmentRepository.class), mock(FlagPrerequisiteRepository.class),
+                snapshots, mock(ApplicationEventPublisher.class),
+                new FlagEvaluationMetrics(registry, new FlagMetricsProperties()), listeners);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run(int index) throws Exception;
+    }
+}